@@ -0,0 +1,94 @@
+/**
+ * Per-row outcome of a batched write
+ */
+public class BatchResult {
+    /**
+     * What happened to a single row of the batch
+     */
+    public enum Outcome {
+        /** The row was written */
+        APPLIED,
+        /** The statement ran but matched no row (e.g. update or delete of a missing ID) */
+        NO_MATCH,
+        /** The statement failed; see getError */
+        FAILED,
+        /** The row was not written because another one holds its ID or it changed since it was read */
+        CONFLICT
+    }
+
+    private final Outcome[] outcomes;
+    private final String[] errors;
+
+    /**
+     * Create a result for a batch of the given size
+     * @param size Number of rows in the batch
+     */
+    BatchResult(int size) {
+        outcomes = new Outcome[size];
+        errors = new String[size];
+    }
+
+    void set(int index, Outcome outcome, String error) {
+        outcomes[index] = outcome;
+        errors[index] = error;
+    }
+
+    /**
+     * Number of rows in the batch
+     * @return Batch size
+     */
+    public int size() {
+        return outcomes.length;
+    }
+
+    /**
+     * Get the outcome of one row
+     * @param index Position of the row in the submitted collection
+     * @return Outcome of that row
+     */
+    public Outcome getOutcome(int index) {
+        return outcomes[index];
+    }
+
+    /**
+     * Get the error message for a failed row
+     * @param index Position of the row in the submitted collection
+     * @return Error message, or null if the row did not fail
+     */
+    public String getError(int index) {
+        return errors[index];
+    }
+
+    public int getAppliedCount() {
+        return count(Outcome.APPLIED);
+    }
+
+    public int getNoMatchCount() {
+        return count(Outcome.NO_MATCH);
+    }
+
+    public int getFailedCount() {
+        return count(Outcome.FAILED);
+    }
+
+    public int getConflictCount() {
+        return count(Outcome.CONFLICT);
+    }
+
+    private int count(Outcome outcome) {
+        int count = 0;
+        for (Outcome o : outcomes) {
+            if (o == outcome) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult[size=" + size() + ", applied=" + getAppliedCount()
+            + ", noMatch=" + getNoMatchCount() + ", failed=" + getFailedCount()
+            + ", conflict=" + getConflictCount() + "]";
+    }
+}
@@ -0,0 +1,414 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of warm SQLite connections.
+ * Connections handed out by {@link #getConnection()} go back to the pool when closed.
+ * Each physical connection keeps a {@link StatementCache}, so statements prepared on a
+ * leased connection survive across leases.
+ */
+public class ConnectionPool {
+    private final String jdbcUrl;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+    private final List<String> initStatements;
+    private final SlowQueryLog slowQueryLog;
+
+    // Most recently used connection first, so the warmest page cache gets reused
+    private final LinkedBlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // Statistics
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong validationFailureCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final AtomicLong statementCacheEvictions = new AtomicLong();
+
+    /**
+     * Create a pool and pre-open the minimum number of connections
+     * @param jdbcUrl JDBC URL of the database
+     * @param minSize Connections kept open even when idle
+     * @param maxSize Upper bound on open connections
+     * @param acquireTimeoutMillis How long getConnection waits for a free connection
+     * @param idleTimeoutMillis Idle time after which connections above minSize are closed
+     * @param validationIntervalMillis Idle time after which a connection is checked before reuse
+     * @param statementCacheSize Prepared statements cached per connection (0 disables the cache)
+     * @param initStatements SQL run on every new physical connection, e.g. PRAGMA settings
+     * @param slowQueryLog Log that prepared statements report slow executions to, or null
+     * @throws SQLException if the initial connections cannot be opened
+     */
+    public ConnectionPool(String jdbcUrl, int minSize, int maxSize, long acquireTimeoutMillis,
+                          long idleTimeoutMillis, long validationIntervalMillis,
+                          int statementCacheSize, List<String> initStatements,
+                          SlowQueryLog slowQueryLog) throws SQLException {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.jdbcUrl = jdbcUrl;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.initStatements = new ArrayList<>(initStatements);
+        this.slowQueryLog = slowQueryLog;
+        this.permits = new Semaphore(maxSize, true);
+
+        for (int i = 0; i < minSize; i++) {
+            idleConnections.addLast(openConnection());
+        }
+
+        evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection from the pool, opening a new one if none is idle
+     * @return Connection whose close() returns it to the pool
+     * @throws SQLException if the pool is closed, exhausted past the timeout, or the connection fails
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis
+                    + " ms waiting for a database connection (max pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idleConnections.pollFirst()) != null) {
+                if (isHealthy(pooled)) {
+                    break;
+                }
+                validationFailureCount.incrementAndGet();
+                destroy(pooled);
+            }
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            acquireCount.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Take a snapshot of the pool counters
+     * @return Current pool statistics
+     */
+    public Statistics getStatistics() {
+        return new Statistics(this);
+    }
+
+    /**
+     * Close all idle connections and stop handing out new ones.
+     * Connections still on loan are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            destroy(pooled);
+        }
+    }
+
+    /**
+     * Return a leased connection to the idle list, or close it if it is no longer usable
+     * @param pooled Connection being returned
+     */
+    private void release(PooledConnection pooled) {
+        try {
+            boolean reusable = !closed && !pooled.connection.isClosed();
+            if (reusable && !pooled.connection.getAutoCommit()) {
+                // Never hand out a connection with someone else's transaction still open
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            if (reusable) {
+                pooled.statements.reclaim();
+                pooled.lastUsed = System.currentTimeMillis();
+                idleConnections.addFirst(pooled);
+                // close() may have drained the idle list since the check above; whichever of the
+                // two removes the connection from the list closes it
+                if (closed && idleConnections.remove(pooled)) {
+                    destroy(pooled);
+                }
+            } else {
+                destroy(pooled);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            destroy(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Check an idle connection before handing it out again
+     * @param pooled Connection to check
+     * @return true if the connection can be reused
+     */
+    private boolean isHealthy(PooledConnection pooled) {
+        try {
+            if (pooled.connection.isClosed()) {
+                return false;
+            }
+            if (System.currentTimeMillis() - pooled.lastUsed < validationIntervalMillis) {
+                return true;
+            }
+            return pooled.connection.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Close connections idle for longer than the idle timeout, keeping at least minSize open
+     */
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idleConnections.descendingIterator(); // oldest first
+        List<PooledConnection> expired = new ArrayList<>();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (openConnections.get() - expired.size() <= minSize) {
+                break;
+            }
+            if (now - pooled.lastUsed >= idleTimeoutMillis && idleConnections.remove(pooled)) {
+                expired.add(pooled);
+            }
+        }
+        for (PooledConnection pooled : expired) {
+            destroy(pooled);
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(jdbcUrl);
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : initStatements) {
+                stmt.execute(sql);
+            }
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
+        }
+        openConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(conn);
+    }
+
+    private void destroy(PooledConnection pooled) {
+        openConnections.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        pooled.statements.clear();
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    private class PooledConnection {
+        final Connection connection;
+        final StatementCache statements;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.statements = new StatementCache(connection, statementCacheSize,
+                statementCacheHits, statementCacheMisses, statementCacheEvictions);
+        }
+
+        /**
+         * Wrap the physical connection in a proxy that is valid until closed once
+         */
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Routes calls to the physical connection, turns close() into a return to the pool
+     * and serves prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) from the statement cache
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.connection + (returned ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (method.getName().equals("prepareStatement")) {
+                Class<?>[] types = method.getParameterTypes();
+                PreparedStatement statement = null;
+                if (types.length == 1) {
+                    statement = pooled.statements.prepare((Connection) proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+                } else if (types.length == 2 && types[1] == int.class) {
+                    statement = pooled.statements.prepare((Connection) proxy, (String) args[0], (Integer) args[1]);
+                }
+                if (statement != null) {
+                    return slowQueryLog != null ? slowQueryLog.wrap(statement, pooled.connection, (String) args[0]) : statement;
+                }
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Point-in-time pool counters, used to size the pool
+     */
+    public static class Statistics {
+        private final int maxSize;
+        private final int openConnections;
+        private final int idleConnections;
+        private final int activeConnections;
+        private final int waitingThreads;
+        private final long createdCount;
+        private final long destroyedCount;
+        private final long acquireCount;
+        private final long timeoutCount;
+        private final long validationFailureCount;
+        private final double averageWaitMillis;
+        private final double maxWaitMillis;
+        private final long statementCacheHits;
+        private final long statementCacheMisses;
+        private final long statementCacheEvictions;
+
+        private Statistics(ConnectionPool pool) {
+            this.maxSize = pool.maxSize;
+            this.openConnections = pool.openConnections.get();
+            this.idleConnections = pool.idleConnections.size();
+            this.activeConnections = pool.maxSize - pool.permits.availablePermits();
+            this.waitingThreads = pool.permits.getQueueLength();
+            this.createdCount = pool.createdCount.get();
+            this.destroyedCount = pool.destroyedCount.get();
+            this.acquireCount = pool.acquireCount.get();
+            this.timeoutCount = pool.timeoutCount.get();
+            this.validationFailureCount = pool.validationFailureCount.get();
+            long acquires = Math.max(1, acquireCount);
+            this.averageWaitMillis = pool.totalWaitNanos.get() / 1_000_000.0 / acquires;
+            this.maxWaitMillis = pool.maxWaitNanos.get() / 1_000_000.0;
+            this.statementCacheHits = pool.statementCacheHits.get();
+            this.statementCacheMisses = pool.statementCacheMisses.get();
+            this.statementCacheEvictions = pool.statementCacheEvictions.get();
+        }
+
+        public int getMaxSize() { return maxSize; }
+        public int getOpenConnections() { return openConnections; }
+        public int getIdleConnections() { return idleConnections; }
+        public int getActiveConnections() { return activeConnections; }
+        public int getWaitingThreads() { return waitingThreads; }
+        public long getCreatedCount() { return createdCount; }
+        public long getDestroyedCount() { return destroyedCount; }
+        public long getAcquireCount() { return acquireCount; }
+        public long getTimeoutCount() { return timeoutCount; }
+        public long getValidationFailureCount() { return validationFailureCount; }
+        public double getAverageWaitMillis() { return averageWaitMillis; }
+        public double getMaxWaitMillis() { return maxWaitMillis; }
+        public long getStatementCacheHits() { return statementCacheHits; }
+        public long getStatementCacheMisses() { return statementCacheMisses; }
+        public long getStatementCacheEvictions() { return statementCacheEvictions; }
+
+        /**
+         * Fraction of prepareStatement calls served from the statement cache
+         * @return Hit ratio between 0 and 1
+         */
+        public double getStatementCacheHitRatio() {
+            long total = statementCacheHits + statementCacheMisses;
+            return total == 0 ? 0 : (double) statementCacheHits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("open=%d (active=%d, idle=%d, max=%d), waiting=%d, created=%d, destroyed=%d, "
+                + "acquired=%d, timeouts=%d, validationFailures=%d, avgWait=%.3f ms, maxWait=%.3f ms, "
+                + "statementCache: hits=%d, misses=%d, evictions=%d, hitRatio=%.2f",
+                openConnections, activeConnections, idleConnections, maxSize, waitingThreads, createdCount,
+                destroyedCount, acquireCount, timeoutCount, validationFailureCount, averageWaitMillis, maxWaitMillis,
+                statementCacheHits, statementCacheMisses, statementCacheEvictions, getStatementCacheHitRatio());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Checks user credentials against the users table.
+ * <p>
+ * Passwords are stored in the pwd column as salted PBKDF2-HMAC-SHA256 hashes in the form
+ * {@code pbkdf2$<iterations>$<salt>$<hash>} (Base64). Rows still holding a plaintext password
+ * are accepted once and rewritten as a hash. Users are looked up through an index on uname.
+ * <p>
+ * Because hashing is deliberately slow, recent successful logins are remembered for a short time
+ * (as a keyed digest, never the password itself) so a quick re-login skips the hash.
+ */
+public class CredentialStore {
+    private static final String HASH_PREFIX = "pbkdf2$";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BYTES = 32;
+    private static final int SESSION_CACHE_SIZE = 64;
+
+    private final int iterations;
+    private final long sessionTtlNanos;
+    private final SecureRandom random = new SecureRandom();
+
+    // Per-process key for the session digests, so cached entries are useless outside this process
+    private final byte[] sessionKey = new byte[32];
+    // A real hash to check against for unknown users, so they take as long as known ones
+    private final String dummyHash;
+
+    // Recent successful logins: username -> session entry, least recently used first
+    private final LinkedHashMap<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static class Session {
+        final byte[] digest;
+        final long verifiedAt;
+
+        Session(byte[] digest, long verifiedAt) {
+            this.digest = digest;
+            this.verifiedAt = verifiedAt;
+        }
+    }
+
+    /**
+     * @param iterations PBKDF2 iteration count for new hashes (the cost factor)
+     * @param sessionTtlMillis How long a successful login is remembered, or 0 to always re-verify
+     */
+    public CredentialStore(int iterations, long sessionTtlMillis) {
+        if (iterations < 1 || sessionTtlMillis < 0) {
+            throw new IllegalArgumentException("Invalid credential settings: iterations=" + iterations
+                + ", sessionTtl=" + sessionTtlMillis);
+        }
+        this.iterations = iterations;
+        this.sessionTtlNanos = TimeUnit.MILLISECONDS.toNanos(sessionTtlMillis);
+        random.nextBytes(sessionKey);
+        this.dummyHash = hash(new char[0]);
+    }
+
+    /**
+     * Create the index on uname if it does not exist.
+     * A unique index is used unless the table already holds duplicate user names.
+     * @param conn Open connection
+     * @throws SQLException if no index can be created
+     */
+    public static void ensureSchema(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            try {
+                stmt.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS users_uname ON users(uname)");
+            } catch (SQLException e) {
+                System.err.println("Duplicate user names in users table, using a non-unique index: " + e.getMessage());
+                stmt.executeUpdate("CREATE INDEX IF NOT EXISTS users_uname_lookup ON users(uname)");
+            }
+        }
+    }
+
+    /**
+     * Check a user name and password
+     * @param username User name
+     * @param password Password; the array is not modified
+     * @return true if the credentials are valid
+     * @throws SQLException if the users table cannot be read or updated
+     */
+    public boolean verify(String username, char[] password) throws SQLException {
+        if (username == null || password == null) {
+            return false;
+        }
+        byte[] digest = sessionDigest(username, password);
+        if (isRecentSession(username, digest)) {
+            return true;
+        }
+
+        String stored = null;
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT pwd FROM users WHERE uname = ?")) {
+            pstmt.setString(1, username);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    stored = rs.getString(1);
+                }
+            }
+        }
+
+        boolean valid;
+        if (stored == null) {
+            matchesHash(password, dummyHash);
+            valid = false;
+        } else if (stored.startsWith(HASH_PREFIX)) {
+            valid = matchesHash(password, stored);
+        } else {
+            valid = MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8), toBytes(password));
+            if (valid) {
+                upgradeLegacyPassword(username, stored, password);
+            }
+        }
+
+        if (valid) {
+            rememberSession(username, digest);
+        }
+        return valid;
+    }
+
+    /**
+     * Set a user's password, storing it as a salted hash
+     * @param username User name
+     * @param password New password; the array is not modified
+     * @return true if the user exists and was updated
+     * @throws SQLException if the update fails
+     */
+    public boolean setPassword(String username, char[] password) throws SQLException {
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE users SET pwd = ? WHERE uname = ?")) {
+            pstmt.setString(1, hash(password));
+            pstmt.setString(2, username);
+            return pstmt.executeUpdate() > 0;
+        } finally {
+            forgetSession(username);
+        }
+    }
+
+    /**
+     * Hash a password with a fresh salt
+     * @param password Password
+     * @return Encoded hash for the pwd column
+     */
+    public String hash(char[] password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+        return HASH_PREFIX + iterations + "$" + b64.encodeToString(salt) + "$" + b64.encodeToString(hash);
+    }
+
+    /**
+     * Check a password against an encoded hash, using the iteration count stored with it
+     */
+    private static boolean matchesHash(char[] password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Replace a plaintext password with a hash, unless it was changed in the meantime
+     */
+    private void upgradeLegacyPassword(String username, String plaintext, char[] password) throws SQLException {
+        try (Connection conn = DatabaseConnector.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE users SET pwd = ? WHERE uname = ? AND pwd = ?")) {
+            pstmt.setString(1, hash(password));
+            pstmt.setString(2, username);
+            pstmt.setString(3, plaintext);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static byte[] pbkdf2(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BYTES * 8);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private synchronized boolean isRecentSession(String username, byte[] digest) {
+        if (sessionTtlNanos == 0) {
+            return false;
+        }
+        Session session = sessions.get(username);
+        if (session == null) {
+            return false;
+        }
+        if (System.nanoTime() - session.verifiedAt >= sessionTtlNanos) {
+            sessions.remove(username);
+            return false;
+        }
+        return MessageDigest.isEqual(session.digest, digest);
+    }
+
+    private synchronized void rememberSession(String username, byte[] digest) {
+        if (sessionTtlNanos == 0) {
+            return;
+        }
+        sessions.put(username, new Session(digest, System.nanoTime()));
+        Iterator<Map.Entry<String, Session>> it = sessions.entrySet().iterator();
+        while (sessions.size() > SESSION_CACHE_SIZE && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private synchronized void forgetSession(String username) {
+        sessions.remove(username);
+    }
+
+    /**
+     * Keyed digest of the credentials, cheap to compute and useless without this process's key
+     */
+    private byte[] sessionDigest(String username, char[] password) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(sessionKey);
+            sha.update(username.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            byte[] bytes = toBytes(password);
+            sha.update(bytes);
+            Arrays.fill(bytes, (byte) 0);
+            return sha.digest();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static byte[] toBytes(char[] chars) {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(chars));
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
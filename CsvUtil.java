@@ -0,0 +1,133 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal RFC 4180 CSV helpers. Quoted fields may span lines.
+ */
+public class CsvUtil {
+    private CsvUtil() {
+    }
+
+    /**
+     * Read one record. A quoted field may contain line breaks, so a record continues onto the
+     * following lines until its last quoted field is closed; the breaks are returned as \n.
+     * @param reader Source
+     * @return The record without its line terminator, or null at the end of the input
+     * @throws IOException if reading fails
+     */
+    public static String readRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null || !endsQuoted(line)) {
+            return line;
+        }
+        StringBuilder record = new StringBuilder(line);
+        while ((line = reader.readLine()) != null) {
+            record.append('\n').append(line);
+            if (!endsQuoted(record)) {
+                break;
+            }
+        }
+        return record.toString(); // Still open at the end of the input: parseLine rejects it
+    }
+
+    /**
+     * Check whether text ends inside a quoted field, following the rules of parseLine
+     */
+    private static boolean endsQuoted(CharSequence text) {
+        boolean quoted = false;
+        boolean blank = true; // Field so far is only whitespace, so a quote opens a quoted field
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        blank = false;
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else if (c > ' ') {
+                    blank = false;
+                }
+            } else if (c == '"' && blank) {
+                quoted = true;
+            } else if (c == ',') {
+                blank = true;
+            } else if (c > ' ') {
+                blank = false;
+            }
+        }
+        return quoted;
+    }
+
+    /**
+     * Split one CSV record into fields.
+     * Fields may be quoted with double quotes; a doubled quote inside a quoted field is a literal quote.
+     * @param line Record without its line terminator
+     * @return Field values
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    public static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.toString().trim().isEmpty()) {
+                field.setLength(0);
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+            i++;
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Append a value as a CSV field, quoting it if needed
+     * @param out Destination
+     * @param value Field value (null is written as an empty field)
+     */
+    public static void appendField(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+            || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!needsQuotes) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Database settings gathered from, in increasing order of precedence:
+ * built-in defaults, a properties file, environment variables and system properties.
+ * <p>
+ * Keys look like {@code dms.db.path}. The matching environment variable is the key in upper case
+ * with dots replaced by underscores ({@code DMS_DB_PATH}). The properties file is taken from
+ * {@code dms.config} / {@code DMS_CONFIG}, or {@code dms.properties} in the working directory if present.
+ * <p>
+ * {@code dms.db.profile} selects a {@link Profile} whose SQLite settings are applied to every
+ * connection when it is opened; each setting can also be overridden on its own.
+ */
+public class DatabaseConfig {
+    /** Default database location, kept from the original hard-coded path */
+    private static final String DEFAULT_DB_PATH = "C:\\Users\\dkg19\\OneDrive\\Desktop\\APP\\javaapp.db";
+    private static final String DEFAULT_CONFIG_FILE = "dms.properties";
+
+    /**
+     * Named bundles of SQLite settings for a workload
+     */
+    public enum Profile {
+        /** WAL with full durability and SQLite's default cache */
+        DEFAULT("WAL", "FULL", -2000, 0, "DEFAULT", 5000),
+        /** Large page cache and memory-mapped reads for browsing and searching big tables */
+        READ_HEAVY("WAL", "NORMAL", -65536, 268435456L, "MEMORY", 5000),
+        /** Fewer fsyncs and a longer busy wait for imports and bulk edits */
+        WRITE_HEAVY("WAL", "NORMAL", -32768, 67108864L, "MEMORY", 15000);
+
+        final String journalMode;
+        final String synchronous;
+        final int cacheSize;
+        final long mmapSize;
+        final String tempStore;
+        final int busyTimeoutMs;
+
+        Profile(String journalMode, String synchronous, int cacheSize, long mmapSize,
+                String tempStore, int busyTimeoutMs) {
+            this.journalMode = journalMode;
+            this.synchronous = synchronous;
+            this.cacheSize = cacheSize;
+            this.mmapSize = mmapSize;
+            this.tempStore = tempStore;
+            this.busyTimeoutMs = busyTimeoutMs;
+        }
+    }
+
+    private final String source;
+    private final String dbPath;
+    private final Profile profile;
+    private final String journalMode;
+    private final String synchronous;
+    private final int cacheSize;
+    private final long mmapSize;
+    private final String tempStore;
+    private final int busyTimeoutMs;
+    private final int poolMinSize;
+    private final int poolMaxSize;
+    private final long poolAcquireTimeoutMs;
+    private final long poolIdleTimeoutMs;
+    private final long poolValidationIntervalMs;
+    private final int statementCacheSize;
+    private final int batchSize;
+    private final int writeBatchSize;
+    private final long writeLingerMs;
+    private final int writeQueueCapacity;
+    private final int cacheMaxSize;
+    private final long cacheTtlMs;
+    private final int passwordIterations;
+    private final long sessionTtlMs;
+    private final String serverHost;
+    private final int serverPort;
+    private final int serverMaxBodyBytes;
+    private final long slowQueryThresholdMs;
+    private final boolean slowQueryLogParameters;
+    private final String slowQueryFile;
+    private final int slowQueryFileBytes;
+    private final int slowQueryFileCount;
+    private final long changePollMs;
+
+    private final Properties file;
+
+    private DatabaseConfig(Properties file, String source) {
+        this.file = file;
+        this.source = source;
+        this.dbPath = get("dms.db.path", DEFAULT_DB_PATH);
+        this.profile = parseProfile(get("dms.db.profile", Profile.DEFAULT.name()));
+        this.journalMode = choice("dms.db.journalMode", profile.journalMode,
+            "DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF");
+        this.synchronous = choice("dms.db.synchronous", profile.synchronous, "OFF", "NORMAL", "FULL", "EXTRA");
+        this.cacheSize = getInt("dms.db.cacheSize", profile.cacheSize);
+        this.mmapSize = getLong("dms.db.mmapSize", profile.mmapSize);
+        this.tempStore = choice("dms.db.tempStore", profile.tempStore, "DEFAULT", "FILE", "MEMORY");
+        this.busyTimeoutMs = getInt("dms.db.busyTimeoutMs", profile.busyTimeoutMs);
+        this.poolMinSize = getInt("dms.pool.minSize", 1);
+        this.poolMaxSize = getInt("dms.pool.maxSize", 4);
+        this.poolAcquireTimeoutMs = getLong("dms.pool.acquireTimeoutMs", 5000);
+        this.poolIdleTimeoutMs = getLong("dms.pool.idleTimeoutMs", 300000);
+        this.poolValidationIntervalMs = getLong("dms.pool.validationIntervalMs", 30000);
+        this.statementCacheSize = getInt("dms.pool.statementCacheSize", 32);
+        this.batchSize = getInt("dms.batch.size", 500);
+        this.writeBatchSize = getInt("dms.write.batchSize", 256);
+        this.writeLingerMs = getLong("dms.write.lingerMs", 0);
+        this.writeQueueCapacity = getInt("dms.write.queueCapacity", 10000);
+        this.cacheMaxSize = getInt("dms.cache.maxSize", 1000);
+        this.cacheTtlMs = getLong("dms.cache.ttlMs", 0);
+        this.passwordIterations = getInt("dms.auth.iterations", 210000);
+        this.sessionTtlMs = getLong("dms.auth.sessionTtlMs", 300000);
+        this.serverHost = get("dms.server.host", "127.0.0.1");
+        this.serverPort = getInt("dms.server.port", 8080);
+        this.serverMaxBodyBytes = getInt("dms.server.maxBodyBytes", 16777216);
+        this.slowQueryThresholdMs = getLong("dms.slowQuery.thresholdMs", 200);
+        this.slowQueryLogParameters = Boolean.parseBoolean(get("dms.slowQuery.logParameters", "true"));
+        this.slowQueryFile = get("dms.slowQuery.file", "slow-queries.%g.log");
+        this.slowQueryFileBytes = getInt("dms.slowQuery.fileBytes", 10485760);
+        this.slowQueryFileCount = getInt("dms.slowQuery.fileCount", 5);
+        this.changePollMs = getLong("dms.changes.pollMs", 1000);
+    }
+
+    /**
+     * Read the configuration from the properties file, environment and system properties
+     * @return Effective configuration
+     * @throws IllegalArgumentException if a setting has an invalid value or the named file cannot be read
+     */
+    public static DatabaseConfig load() {
+        String explicit = lookup(null, "dms.config");
+        Path path = Paths.get(explicit != null ? explicit : DEFAULT_CONFIG_FILE);
+        Properties file = new Properties();
+        String source = "defaults";
+        if (Files.isRegularFile(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                file.load(in);
+                source = path.toAbsolutePath().toString();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot read configuration file " + path + ": " + e.getMessage(), e);
+            }
+        } else if (explicit != null) {
+            throw new IllegalArgumentException("Configuration file not found: " + path);
+        }
+        return new DatabaseConfig(file, source);
+    }
+
+    /**
+     * JDBC URL of the configured database
+     */
+    public String getJdbcUrl() {
+        return "jdbc:sqlite:" + dbPath;
+    }
+
+    /**
+     * PRAGMA statements run on every new connection, in order
+     * @return SQL statements
+     */
+    public List<String> getConnectionInitStatements() {
+        List<String> sql = new ArrayList<>();
+        // busy_timeout first so switching the journal mode waits for other connections
+        sql.add("PRAGMA busy_timeout = " + busyTimeoutMs);
+        sql.add("PRAGMA journal_mode = " + journalMode);
+        sql.add("PRAGMA synchronous = " + synchronous);
+        sql.add("PRAGMA cache_size = " + cacheSize);
+        sql.add("PRAGMA mmap_size = " + mmapSize);
+        sql.add("PRAGMA temp_store = " + tempStore);
+        return sql;
+    }
+
+    public String getDbPath() { return dbPath; }
+    public Profile getProfile() { return profile; }
+    public int getPoolMinSize() { return poolMinSize; }
+    public int getPoolMaxSize() { return poolMaxSize; }
+    public long getPoolAcquireTimeoutMs() { return poolAcquireTimeoutMs; }
+    public long getPoolIdleTimeoutMs() { return poolIdleTimeoutMs; }
+    public long getPoolValidationIntervalMs() { return poolValidationIntervalMs; }
+    public int getStatementCacheSize() { return statementCacheSize; }
+    public int getBatchSize() { return batchSize; }
+    public int getWriteBatchSize() { return writeBatchSize; }
+    public long getWriteLingerMs() { return writeLingerMs; }
+    public int getWriteQueueCapacity() { return writeQueueCapacity; }
+    public int getCacheMaxSize() { return cacheMaxSize; }
+    public long getCacheTtlMs() { return cacheTtlMs; }
+    public int getPasswordIterations() { return passwordIterations; }
+    public long getSessionTtlMs() { return sessionTtlMs; }
+    public String getServerHost() { return serverHost; }
+    public int getServerPort() { return serverPort; }
+    public int getServerMaxBodyBytes() { return serverMaxBodyBytes; }
+
+    /**
+     * Statements taking at least this long are logged; negative disables the slow-query log
+     */
+    public long getSlowQueryThresholdMs() { return slowQueryThresholdMs; }
+    public boolean isSlowQueryLogParameters() { return slowQueryLogParameters; }
+    public String getSlowQueryFile() { return slowQueryFile; }
+    public int getSlowQueryFileBytes() { return slowQueryFileBytes; }
+    public int getSlowQueryFileCount() { return slowQueryFileCount; }
+
+    /**
+     * How often open lists check for changes made by other connections; 0 or less disables the check
+     */
+    public long getChangePollMs() { return changePollMs; }
+
+    @Override
+    public String toString() {
+        return "Database configuration (from " + source + "):\n"
+            + "  path=" + dbPath + "\n"
+            + "  profile=" + profile + " (journal_mode=" + journalMode + ", synchronous=" + synchronous
+            + ", cache_size=" + cacheSize + ", mmap_size=" + mmapSize + ", temp_store=" + tempStore
+            + ", busy_timeout=" + busyTimeoutMs + " ms)\n"
+            + "  pool: min=" + poolMinSize + ", max=" + poolMaxSize + ", acquireTimeout=" + poolAcquireTimeoutMs
+            + " ms, idleTimeout=" + poolIdleTimeoutMs + " ms, validationInterval=" + poolValidationIntervalMs
+            + " ms, statementCache=" + statementCacheSize + "\n"
+            + "  batchSize=" + batchSize + "\n"
+            + "  writeQueue: batchSize=" + writeBatchSize + ", linger=" + writeLingerMs
+            + " ms, capacity=" + writeQueueCapacity + "\n"
+            + "  departmentCache: maxSize=" + cacheMaxSize + ", ttl=" + cacheTtlMs + " ms\n"
+            + "  auth: iterations=" + passwordIterations + ", sessionTtl=" + sessionTtlMs + " ms\n"
+            + "  server: host=" + serverHost + ", port=" + serverPort + ", maxBodyBytes=" + serverMaxBodyBytes + "\n"
+            + "  slowQuery: threshold=" + slowQueryThresholdMs + " ms, logParameters=" + slowQueryLogParameters
+            + ", file=" + slowQueryFile + " (" + slowQueryFileCount + " x " + slowQueryFileBytes + " bytes)\n"
+            + "  changes: poll=" + changePollMs + " ms";
+    }
+
+    private String get(String key, String defaultValue) {
+        String value = lookup(file, key);
+        return value != null ? value : defaultValue;
+    }
+
+    private int getInt(String key, int defaultValue) {
+        String value = lookup(file, key);
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Setting " + key + " must be an integer: " + value);
+        }
+    }
+
+    private long getLong(String key, long defaultValue) {
+        String value = lookup(file, key);
+        try {
+            return value != null ? Long.parseLong(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Setting " + key + " must be an integer: " + value);
+        }
+    }
+
+    /**
+     * Read a keyword setting; only listed values are accepted because they end up in PRAGMA text
+     */
+    private String choice(String key, String defaultValue, String... allowed) {
+        String value = get(key, defaultValue).toUpperCase(Locale.ROOT);
+        for (String a : allowed) {
+            if (a.equals(value)) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Setting " + key + " must be one of " + String.join(", ", allowed) + ": " + value);
+    }
+
+    private static Profile parseProfile(String value) {
+        try {
+            return Profile.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown database profile: " + value);
+        }
+    }
+
+    /**
+     * Look a key up in system properties, then the environment, then the file
+     */
+    private static String lookup(Properties file, String key) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        if (value == null && file != null) {
+            value = file.getProperty(key);
+        }
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+}
@@ -1,13 +1,30 @@
+import java.awt.GraphicsEnvironment;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntPredicate;
 import javax.swing.JOptionPane;
 
 /**
  * Database connectivity class that handles all database operations
  */
 public class DatabaseConnector {
-    // Database connection details - UPDATED PATH
-    private static final String DB_PATH = "C:\\Users\\dkg19\\OneDrive\\Desktop\\APP\\javaapp.db";
-    private static final String JDBC_URL = "jdbc:sqlite:" + DB_PATH;
+    // Rows fetched per round trip when streaming large result sets
+    private static final int FETCH_SIZE = 500;
+    
+    // Select list of list pages, in the order DepartmentColumnStore.add takes the values
+    private static final String PAGE_COLUMNS =
+        "d.id, d.sch_id, d.dept_code, d.dept_name, d.dept_location, d.dept_email, d.version";
+    
+    // Database path, SQLite profile, pool and batch settings; see DatabaseConfig
+    private static DatabaseConfig config;
+    private static ConnectionPool pool;
+    private static DepartmentWriteQueue writeQueue;
+    private static DepartmentCache departmentCache;
+    private static CredentialStore credentialStore;
+    private static SlowQueryLog slowQueryLog;
+    private static DepartmentChangeMonitor changeMonitor;
     
     /**
      * Initialize database and check connection
@@ -17,30 +34,209 @@ public class DatabaseConnector {
             // Load JDBC driver
             Class.forName("org.sqlite.JDBC");
             
+            System.out.println(getConfig());
+            
             // Test connection
             try (Connection conn = getConnection()) {
                 System.out.println("Database connection successful!");
+                System.out.println("Effective SQLite settings: " + describeSettings(conn));
+                SchemaMigrator.migrate(conn);
             }
+            DatabaseMetrics.register();
+            
+            // Close pooled connections on exit
+            Runtime.getRuntime().addShutdownHook(new Thread(DatabaseConnector::shutdown, "database-shutdown"));
         } catch (ClassNotFoundException e) {
-            JOptionPane.showMessageDialog(null, 
-                "SQLite JDBC Driver not found. Make sure sqlite-jdbc-3.49.1.0.jar is in classpath.", 
-                "Database Error", JOptionPane.ERROR_MESSAGE);
-            System.exit(1);
+            startupFailed("SQLite JDBC Driver not found. Make sure sqlite-jdbc-3.49.1.0.jar is in classpath.");
+        } catch (IllegalArgumentException e) {
+            startupFailed("Database configuration error: " + e.getMessage());
         } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, 
-                "Database connection error: " + e.getMessage(), 
-                "Database Error", JOptionPane.ERROR_MESSAGE);
-            System.exit(1);
+            startupFailed("Database connection error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Report a fatal startup error and exit; in a dialog unless running headless (e.g. as a server)
+     * @param message Error message
+     */
+    private static void startupFailed(String message) {
+        if (GraphicsEnvironment.isHeadless()) {
+            System.err.println(message);
+        } else {
+            JOptionPane.showMessageDialog(null, message, "Database Error", JOptionPane.ERROR_MESSAGE);
         }
+        System.exit(1);
     }
     
     /**
-     * Get database connection
+     * Read back the SQLite settings a connection actually ended up with.
+     * The journal mode in particular can differ from the requested one (e.g. WAL on a network drive).
+     * @param conn Open connection
+     * @return Settings as name=value pairs
+     * @throws SQLException if a PRAGMA cannot be read
+     */
+    private static String describeSettings(Connection conn) throws SQLException {
+        StringBuilder sb = new StringBuilder();
+        try (Statement stmt = conn.createStatement()) {
+            for (String pragma : new String[] {"journal_mode", "synchronous", "cache_size", "mmap_size", "temp_store", "busy_timeout"}) {
+                try (ResultSet rs = stmt.executeQuery("PRAGMA " + pragma)) {
+                    if (sb.length() > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(pragma).append('=').append(rs.next() ? rs.getString(1) : "?");
+                }
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Get database connection from the pool.
+     * Closing the returned connection hands it back to the pool.
      * @return Connection object
      * @throws SQLException if connection fails
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(JDBC_URL);
+        return getPool().getConnection();
+    }
+    
+    /**
+     * Get the connection pool, creating it on first use
+     * @return The shared connection pool
+     * @throws SQLException if the initial connections cannot be opened
+     */
+    private static synchronized ConnectionPool getPool() throws SQLException {
+        if (pool == null) {
+            DatabaseConfig cfg = getConfig();
+            if (slowQueryLog == null) {
+                slowQueryLog = SlowQueryLog.create(cfg);
+            }
+            pool = new ConnectionPool(cfg.getJdbcUrl(), cfg.getPoolMinSize(), cfg.getPoolMaxSize(),
+                cfg.getPoolAcquireTimeoutMs(), cfg.getPoolIdleTimeoutMs(), cfg.getPoolValidationIntervalMs(),
+                cfg.getStatementCacheSize(), cfg.getConnectionInitStatements(), slowQueryLog);
+        }
+        return pool;
+    }
+    
+    /**
+     * Get the shared write-behind queue, starting its writer thread on first use
+     * @return Queue for asynchronous department writes
+     */
+    public static synchronized DepartmentWriteQueue getWriteQueue() {
+        if (writeQueue == null) {
+            DatabaseConfig cfg = getConfig();
+            writeQueue = new DepartmentWriteQueue(cfg.getWriteBatchSize(), cfg.getWriteLingerMs(), cfg.getWriteQueueCapacity());
+        }
+        return writeQueue;
+    }
+    
+    /**
+     * Get the monitor that reports department changes made by other connections and processes,
+     * starting it on first use
+     * @return The monitor, or null if change polling is disabled
+     */
+    public static synchronized DepartmentChangeMonitor getChangeMonitor() {
+        DatabaseConfig cfg = getConfig();
+        if (changeMonitor == null && cfg.getChangePollMs() > 0) {
+            changeMonitor = new DepartmentChangeMonitor(cfg.getJdbcUrl(), cfg.getConnectionInitStatements(), cfg.getChangePollMs());
+        }
+        return changeMonitor;
+    }
+    
+    /**
+     * Get the cache behind getDepartmentById, creating it on first use
+     * @return Department cache
+     */
+    private static synchronized DepartmentCache getDepartmentCache() {
+        if (departmentCache == null) {
+            DatabaseConfig cfg = getConfig();
+            departmentCache = new DepartmentCache(cfg.getCacheMaxSize(), cfg.getCacheTtlMs(), DatabaseConnector::loadDepartmentById);
+        }
+        return departmentCache;
+    }
+    
+    /**
+     * Get department cache statistics
+     * @return Snapshot of cache counters
+     */
+    public static DepartmentCache.Statistics getCacheStatistics() {
+        return getDepartmentCache().getStatistics();
+    }
+    
+    /**
+     * Drop a department from the cache; called once a write to it has been committed
+     * @param id Department ID
+     */
+    static void departmentChanged(int id) {
+        getDepartmentCache().invalidate(id);
+    }
+    
+    /**
+     * Drop every department from the cache; called after bulk writes
+     */
+    static void departmentsChanged() {
+        getDepartmentCache().invalidateAll();
+    }
+    
+    /**
+     * Get the database configuration, loading it on first use
+     * @return Effective configuration
+     * @throws IllegalArgumentException if the configuration is invalid
+     */
+    public static synchronized DatabaseConfig getConfig() {
+        if (config == null) {
+            config = DatabaseConfig.load();
+        }
+        return config;
+    }
+    
+    /**
+     * Get connection pool statistics
+     * @return Snapshot of pool counters, or null if the pool has not been created yet
+     */
+    public static synchronized ConnectionPool.Statistics getPoolStatistics() {
+        return pool != null ? pool.getStatistics() : null;
+    }
+    
+    /**
+     * Get the number of writes waiting in the write queue, without starting it
+     * @return Pending mutations, or 0 if the queue has not been started
+     */
+    public static synchronized int getWriteQueuePending() {
+        return writeQueue != null ? writeQueue.getPendingCount() : 0;
+    }
+    
+    /**
+     * Close all pooled connections
+     */
+    public static void shutdown() {
+        DepartmentWriteQueue queue;
+        DepartmentChangeMonitor monitor;
+        synchronized (DatabaseConnector.class) {
+            queue = writeQueue;
+            writeQueue = null;
+            monitor = changeMonitor;
+            changeMonitor = null;
+        }
+        if (monitor != null) {
+            // Not under the lock either: a poll in progress drops cache entries through this class
+            monitor.close();
+        }
+        if (queue != null) {
+            // Commit queued writes while the pool is still open; not under the lock,
+            // since the writer thread needs getConnection() to finish
+            queue.close();
+        }
+        synchronized (DatabaseConnector.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+            if (slowQueryLog != null) {
+                slowQueryLog.close();
+                slowQueryLog = null;
+            }
+        }
     }
     
     /**
@@ -50,15 +246,8 @@ public class DatabaseConnector {
      * @return true if credentials are valid, false otherwise
      */
     public static boolean validateLogin(String username, String password) {
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM users WHERE uname = ? AND pwd = ?")) {
-            
-            pstmt.setString(1, username);
-            pstmt.setString(2, password);
-            
-            try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next(); // Return true if user exists with matching credentials
-            }
+        try {
+            return authenticate(username, password.toCharArray());
         } catch (SQLException e) {
             e.printStackTrace();
             JOptionPane.showMessageDialog(null, 
@@ -69,27 +258,392 @@ public class DatabaseConnector {
     }
     
     /**
-     * Get all departments from database
-     * @return ResultSet containing departments data
+     * Check user credentials against the hashed passwords in the users table.
+     * Slow by design (password hashing); call it off the EDT.
+     * @param username Username to validate
+     * @param password Password to validate
+     * @return true if credentials are valid, false otherwise
+     * @throws SQLException if the users table cannot be read
+     */
+    public static boolean authenticate(String username, char[] password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            boolean valid = getCredentialStore().verify(username, password);
+            DatabaseMetrics.LOGIN.record(start, 1);
+            return valid;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.LOGIN.recordError(start);
+            throw e;
+        }
+    }
+    
+    /**
+     * Get the credential store, creating it on first use
+     * @return Credential store
+     */
+    public static synchronized CredentialStore getCredentialStore() {
+        if (credentialStore == null) {
+            DatabaseConfig cfg = getConfig();
+            credentialStore = new CredentialStore(cfg.getPasswordIterations(), cfg.getSessionTtlMs());
+        }
+        return credentialStore;
+    }
+    
+    /**
+     * Get all departments from database.
+     * Loads the whole table into memory, so use forEachDepartment for large tables.
+     * @return List of departments ordered by ID
+     * @throws SQLException if query fails
+     */
+    public static List<Department> getAllDepartments() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            List<Department> departments = new ArrayList<>();
+            scanDepartments(DepartmentQuery.ALL, department -> departments.add(department));
+            DatabaseMetrics.GET_ALL.record(start, departments.size());
+            return departments;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.GET_ALL.recordError(start);
+            throw e;
+        }
+    }
+    
+    /**
+     * Stream all departments ordered by ID to a visitor without materializing the table.
+     * The connection and statement are closed before this method returns.
+     * @param visitor Callback invoked for each row; returning false stops the scan
+     * @return Number of rows visited
      * @throws SQLException if query fails
      */
-    public static ResultSet getAllDepartments() throws SQLException {
-        Connection conn = getConnection();
-        Statement stmt = conn.createStatement();
-        return stmt.executeQuery("SELECT * FROM departments ORDER BY id");
+    public static int forEachDepartment(DepartmentVisitor visitor) throws SQLException {
+        return forEachDepartment(DepartmentQuery.ALL, visitor);
+    }
+    
+    /**
+     * Stream the departments selected by a query, in its order, without materializing them.
+     * The connection and statement are closed before this method returns.
+     * @param query Filter and sort order
+     * @param visitor Callback invoked for each row; returning false stops the scan
+     * @return Number of rows visited
+     * @throws SQLException if query fails
+     */
+    public static int forEachDepartment(DepartmentQuery query, DepartmentVisitor visitor) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            int count = scanDepartments(query, visitor);
+            DatabaseMetrics.FOR_EACH.record(start, count);
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.FOR_EACH.recordError(start);
+            throw e;
+        }
+    }
+    
+    private static int scanDepartments(DepartmentQuery query, DepartmentVisitor visitor) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = query.toSql("d.*", params);
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setFetchSize(FETCH_SIZE);
+            DepartmentQuery.bind(pstmt, params);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int count = 0;
+                while (rs.next()) {
+                    count++;
+                    if (!visitor.visit(readDepartment(rs))) {
+                        break;
+                    }
+                }
+                return count;
+            }
+        }
     }
     
     /**
      * Search for department by ID
      * @param id Department ID to search for
-     * @return ResultSet containing the department data
+     * @return The department, or null if no department has this ID
+     * @throws SQLException if query fails
+     */
+    public static Department getDepartmentById(int id) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            Department department = getDepartmentCache().get(id);
+            DatabaseMetrics.GET_BY_ID.record(start, department != null ? 1 : 0);
+            return department;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.GET_BY_ID.recordError(start);
+            throw e;
+        }
+    }
+    
+    private static Department loadDepartmentById(int id) throws SQLException {
+        try (Connection conn = getConnection()) {
+            return loadDepartmentById(conn, id);
+        }
+    }
+    
+    /**
+     * Read a department on a caller-supplied connection, bypassing the cache
+     * @param conn Open connection; inside a transaction this sees the transaction's own writes
+     * @return The department, or null if no department has this ID
+     * @throws SQLException if query fails
+     */
+    static Department loadDepartmentById(Connection conn, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM departments WHERE id = ?")) {
+            
+            pstmt.setInt(1, id);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? readDepartment(rs) : null;
+            }
+        }
+    }
+    
+    /**
+     * Count all departments
+     * @return Number of rows in the departments table
+     * @throws SQLException if query fails
+     */
+    public static int countDepartments() throws SQLException {
+        return countDepartments(DepartmentQuery.ALL);
+    }
+    
+    /**
+     * Count the departments selected by a query
+     * @param query Filter; the sort order is ignored
+     * @return Number of matching rows
      * @throws SQLException if query fails
      */
-    public static ResultSet getDepartmentById(int id) throws SQLException {
-        Connection conn = getConnection();
-        PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM departments WHERE id = ?");
-        pstmt.setInt(1, id);
-        return pstmt.executeQuery();
+    public static int countDepartments(DepartmentQuery query) throws SQLException {
+        long start = System.nanoTime();
+        List<Object> params = new ArrayList<>();
+        String sql = query.toCountSql(params);
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            DepartmentQuery.bind(pstmt, params);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int count = rs.next() ? rs.getInt(1) : 0;
+                DatabaseMetrics.COUNT.record(start, 1);
+                return count;
+            }
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.COUNT.recordError(start);
+            throw e;
+        }
+    }
+    
+    /**
+     * Stream all department IDs in ascending order without loading the rows themselves
+     * @param visitor Callback invoked for each ID; returning false stops the scan
+     * @return Number of IDs visited
+     * @throws SQLException if query fails
+     */
+    public static int forEachDepartmentId(IntPredicate visitor) throws SQLException {
+        return forEachDepartmentId(DepartmentQuery.ALL, visitor);
+    }
+    
+    /**
+     * Stream the IDs of the departments selected by a query, in its order, without loading the rows.
+     * Filtering and sorting happen in SQLite; only the IDs leave the database.
+     * @param query Filter and sort order
+     * @param visitor Callback invoked for each ID; returning false stops the scan
+     * @return Number of IDs visited
+     * @throws SQLException if query fails
+     */
+    public static int forEachDepartmentId(DepartmentQuery query, IntPredicate visitor) throws SQLException {
+        long start = System.nanoTime();
+        List<Object> params = new ArrayList<>();
+        String sql = query.toSql("d.id", params);
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            pstmt.setFetchSize(FETCH_SIZE);
+            DepartmentQuery.bind(pstmt, params);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int count = 0;
+                while (rs.next()) {
+                    count++;
+                    if (!visitor.test(rs.getInt(1))) {
+                        break;
+                    }
+                }
+                DatabaseMetrics.FOR_EACH_ID.record(start, count);
+                return count;
+            }
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.FOR_EACH_ID.recordError(start);
+            throw e;
+        }
+    }
+    
+    /**
+     * Read one page of departments in ID order using keyset paging
+     * @param afterId Only departments with a greater ID are returned
+     * @param limit Maximum number of departments to return
+     * @param page Column store the rows are appended to
+     * @return Number of rows read
+     * @throws SQLException if query fails
+     */
+    public static int getDepartmentPage(long afterId, int limit, DepartmentColumnStore page) throws SQLException {
+        return getDepartmentPage(DepartmentQuery.ALL, afterId, limit, page);
+    }
+    
+    /**
+     * Read one page of the departments selected by an ID-ordered query using keyset paging
+     * @param query Filter; must be in ascending ID order (see {@link DepartmentQuery#isIdOrdered()})
+     * @param afterId Only departments with a greater ID are returned
+     * @param limit Maximum number of departments to return
+     * @param page Column store the rows are appended to
+     * @return Number of rows read
+     * @throws SQLException if query fails
+     */
+    public static int getDepartmentPage(DepartmentQuery query, long afterId, int limit, DepartmentColumnStore page) throws SQLException {
+        long start = System.nanoTime();
+        List<Object> params = new ArrayList<>();
+        String sql = query.toPageSql(PAGE_COLUMNS, afterId, limit, params);
+        return readPage(start, sql, params, page);
+    }
+    
+    /**
+     * Read one page of the departments selected by a query in any order, skipping the rows before
+     * it with LIMIT/OFFSET. The skipped rows are stepped over by SQLite, not read into records, but
+     * the cost still grows with the offset; ID-ordered lists should use keyset paging instead.
+     * @param query Filter and sort order
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of departments to return
+     * @param page Column store the rows are appended to
+     * @return Number of rows read
+     * @throws SQLException if query fails
+     */
+    public static int getDepartmentPageAt(DepartmentQuery query, int offset, int limit, DepartmentColumnStore page) throws SQLException {
+        long start = System.nanoTime();
+        List<Object> params = new ArrayList<>();
+        String sql = query.toSql(PAGE_COLUMNS, limit, offset, params);
+        return readPage(start, sql, params, page);
+    }
+    
+    private static int readPage(long start, String sql, List<Object> params, DepartmentColumnStore page) throws SQLException {
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            DepartmentQuery.bind(pstmt, params);
+            
+            int count = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    // Read by position straight into the columns, without a record per row
+                    page.add(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getLong(7));
+                    count++;
+                }
+            }
+            DatabaseMetrics.GET_PAGE.record(start, count);
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.GET_PAGE.recordError(start);
+            throw e;
+        }
+    }
+    
+    /**
+     * Read departments by ID into a column store, in the order the IDs are given.
+     * IDs that no longer exist are skipped, so callers match the rows to their IDs.
+     * @param ids Department IDs
+     * @param offset Index of the first ID to read
+     * @param length Number of IDs to read
+     * @param page Column store the rows are appended to
+     * @return Number of rows read
+     * @throws SQLException if query fails
+     */
+    public static int getDepartmentsByIds(int[] ids, int offset, int length, DepartmentColumnStore page) throws SQLException {
+        if (length == 0) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        // Round the placeholder count up to a power of two so a few statement texts cover every
+        // page length and stay in the statement cache; the spare slots repeat the last ID
+        int slots = Math.max(8, Integer.highestOneBit(length - 1) << 1);
+        StringBuilder sql = new StringBuilder(
+            "SELECT id, sch_id, dept_code, dept_name, dept_location, dept_email, version FROM departments WHERE id IN (");
+        for (int i = 0; i < slots; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            
+            for (int i = 0; i < slots; i++) {
+                pstmt.setInt(i + 1, ids[offset + Math.min(i, length - 1)]);
+            }
+            
+            // Rows come back in index order; collect them, then copy out in the requested order
+            DepartmentColumnStore unordered = new DepartmentColumnStore(length, new StringPool(0));
+            IntIntHashMap positions = new IntIntHashMap(length);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    positions.put(rs.getInt(1), unordered.size());
+                    unordered.add(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getLong(7));
+                }
+            }
+            
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                int row = positions.get(ids[offset + i]);
+                if (row >= 0) {
+                    page.add(unordered.getId(row), unordered.getSchId(row), unordered.getDeptCode(row),
+                        unordered.getName(row), unordered.getLocation(row), unordered.getEmail(row), unordered.getVersion(row));
+                    count++;
+                }
+            }
+            DatabaseMetrics.GET_BY_IDS.record(start, count);
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.GET_BY_IDS.recordError(start);
+            throw e;
+        }
+    }
+    
+    /**
+     * Turn free text into an FTS5 query that prefix-matches every word.
+     * Words are quoted so punctuation in names and e-mail addresses is not read as query syntax.
+     * @param text User input
+     * @return FTS5 query, or an empty string if the input has no words
+     */
+    static String toFullTextQuery(String text) {
+        StringBuilder query = new StringBuilder();
+        for (String word : text.trim().split("\\s+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append('"').append(word.replace("\"", "\"\"")).append("\"*");
+        }
+        return query.toString();
+    }
+    
+    /**
+     * Map the current row of a departments query to a record
+     * @param rs ResultSet positioned on a row
+     * @return Department for the current row
+     * @throws SQLException if a column cannot be read
+     */
+    private static Department readDepartment(ResultSet rs) throws SQLException {
+        return new Department(
+            rs.getInt("id"),
+            rs.getInt("sch_id"),
+            rs.getInt("dept_code"),
+            rs.getString("dept_name"),
+            rs.getString("dept_location"),
+            rs.getString("dept_email"),
+            rs.getLong("version"));
     }
     
    /**
@@ -101,31 +655,54 @@ public class DatabaseConnector {
  * @param location Department location
  * @param email Department email
  * @return Number of rows affected
+ * @throws DepartmentConflictException if a department with this ID already exists
  * @throws SQLException if database error occurs
  */
 public static int insertDepartmentWithId(int id, int schId, int deptCode, String name, String location, String email) throws SQLException {
-    Connection conn = null;
-    PreparedStatement stmt = null;
-    
-    try {
-        conn = getConnection();
-        
+    long start = System.nanoTime();
+    try (Connection conn = getConnection()) {
+        int count = insertDepartmentWithId(conn, id, schId, deptCode, name, location, email);
+        DatabaseMetrics.INSERT.record(start, count);
+        return count;
+    } catch (SQLException | RuntimeException e) {
+        DatabaseMetrics.INSERT.recordError(start);
+        throw e;
+    } finally {
+        departmentChanged(id);
+    }
+}
+
+    /**
+     * Insert a new department with a specific ID on a caller-supplied connection.
+     * Empty location and email are stored as NULL.
+     * A taken ID is detected by the insert itself rather than by a separate lookup first,
+     * so two clients racing for the same ID cannot both pass the check.
+     * @param conn Open connection; the caller controls the transaction
+     * @return Number of rows affected
+     * @throws DepartmentConflictException if a department with this ID already exists
+     * @throws SQLException if database error occurs
+     */
+    static int insertDepartmentWithId(Connection conn, int id, int schId, int deptCode, String name, String location, String email) throws SQLException {
         // The SQL needs to specify the ID column and value
-        String sql = "INSERT INTO departments (id, sch_id, dept_code, dept_name, dept_location, dept_email) VALUES (?, ?, ?, ?, ?, ?)";
-        
-        stmt = conn.prepareStatement(sql);
-        stmt.setInt(1, id);
-        stmt.setInt(2, schId);
-        stmt.setInt(3, deptCode);
-        stmt.setString(4, name);
-        stmt.setString(5, location != null && !location.isEmpty() ? location : null);
-        stmt.setString(6, email != null && !email.isEmpty() ? email : null);
+        String sql = "INSERT INTO departments (id, sch_id, dept_code, dept_name, dept_location, dept_email) VALUES (?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT(id) DO NOTHING";
         
-        return stmt.executeUpdate();
-    } finally {
-        closeResources(conn, stmt, null);
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            stmt.setInt(2, schId);
+            stmt.setInt(3, deptCode);
+            stmt.setString(4, name);
+            stmt.setString(5, location != null && !location.isEmpty() ? location : null);
+            stmt.setString(6, email != null && !email.isEmpty() ? email : null);
+            
+            int count = stmt.executeUpdate();
+            if (count == 0) {
+                throw new DepartmentConflictException("Department ID " + id + " is already in use",
+                    id, loadDepartmentById(conn, id));
+            }
+            return count;
+        }
     }
-} 
 
     /**
      * Insert a new department with auto-generated ID
@@ -138,6 +715,7 @@ public static int insertDepartmentWithId(int id, int schId, int deptCode, String
      * @throws SQLException if query fails
      */
     public static int insertDepartment(int schId, int deptCode, String name, String location, String email) throws SQLException {
+        long start = System.nanoTime();
         try (Connection conn = getConnection();
              PreparedStatement pstmt = conn.prepareStatement(
                  "INSERT INTO departments (sch_id, dept_code, dept_name, dept_location, dept_email) VALUES (?, ?, ?, ?, ?)")) {
@@ -148,11 +726,70 @@ public static int insertDepartmentWithId(int id, int schId, int deptCode, String
             pstmt.setString(4, location);
             pstmt.setString(5, email);
             
-            return pstmt.executeUpdate();
+            int count = pstmt.executeUpdate();
+            DatabaseMetrics.INSERT.record(start, count);
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.INSERT.recordError(start);
+            throw e;
+        } finally {
+            // The assigned ID is not known here, so drop the whole cache
+            departmentsChanged();
         }
     }
     /**
-     * Update existing department
+     * Insert a new department with auto-generated ID and return that ID
+     * @param schId School ID
+     * @param deptCode Department code
+     * @param name Department name
+     * @param location Department location
+     * @param email Department email
+     * @return The generated department ID, or -1 if no row was inserted
+     * @throws SQLException if query fails
+     */
+    public static int insertDepartmentReturningId(int schId, int deptCode, String name, String location, String email) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            int id = insertDepartmentReturningId(conn, schId, deptCode, name, location, email);
+            if (id > 0) {
+                departmentChanged(id);
+            }
+            DatabaseMetrics.INSERT.record(start, id > 0 ? 1 : 0);
+            return id;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.INSERT.recordError(start);
+            throw e;
+        }
+    }
+    
+    /**
+     * Insert a new department with an auto-generated ID on a caller-supplied connection
+     * @param conn Open connection; the caller controls the transaction
+     * @return Generated ID, or -1 if no row was inserted
+     * @throws SQLException if database error occurs
+     */
+    static int insertDepartmentReturningId(Connection conn, int schId, int deptCode, String name, String location, String email) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                 "INSERT INTO departments (sch_id, dept_code, dept_name, dept_location, dept_email) VALUES (?, ?, ?, ?, ?)",
+                 Statement.RETURN_GENERATED_KEYS)) {
+            
+            pstmt.setInt(1, schId);
+            pstmt.setInt(2, deptCode);
+            pstmt.setString(3, name);
+            pstmt.setString(4, location);
+            pstmt.setString(5, email);
+            
+            if (pstmt.executeUpdate() == 0) {
+                return -1;
+            }
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : -1;
+            }
+        }
+    }
+    
+    /**
+     * Update existing department regardless of its current version
      * @param id Department ID to update
      * @param schId Updated school ID
      * @param deptCode Updated department code
@@ -163,49 +800,336 @@ public static int insertDepartmentWithId(int id, int schId, int deptCode, String
      * @throws SQLException if query fails
      */
     public static int updateDepartment(int id, int schId, int deptCode, String name, String location, String email) throws SQLException {
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(
-                 "UPDATE departments SET sch_id = ?, dept_code = ?, dept_name = ?, dept_location = ?, dept_email = ? WHERE id = ?")) {
+        return updateDepartment(new Department(id, schId, deptCode, name, location, email)) != null ? 1 : 0;
+    }
+    
+    /**
+     * Update existing department if it still has the version it was read at.
+     * A department with version 0 is written whatever the stored version is.
+     * @param department New values, matched by ID
+     * @return The department as stored, with its new version, or null if no department has this ID
+     * @throws DepartmentConflictException if the department was changed since it was read
+     * @throws SQLException if query fails
+     */
+    public static Department updateDepartment(Department department) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            Department stored = updateDepartment(conn, department);
+            DatabaseMetrics.UPDATE.record(start, stored != null ? 1 : 0);
+            return stored;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.UPDATE.recordError(start);
+            throw e;
+        } finally {
+            departmentChanged(department.getId());
+        }
+    }
+    
+    /**
+     * Update a department on a caller-supplied connection.
+     * The version check and the write are one statement, so no other writer can slip in between.
+     * @param conn Open connection; the caller controls the transaction
+     * @param department New values, matched by ID; version 0 skips the version check
+     * @return The department as stored, with its new version, or null if no department has this ID
+     * @throws DepartmentConflictException if the department was changed since it was read
+     * @throws SQLException if database error occurs
+     */
+    static Department updateDepartment(Connection conn, Department department) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                 "UPDATE departments SET sch_id = ?, dept_code = ?, dept_name = ?, dept_location = ?, dept_email = ?, "
+                     + "version = version + 1 WHERE id = ? AND (? = 0 OR version = ?) RETURNING version")) {
             
-            pstmt.setInt(1, schId);
-            pstmt.setInt(2, deptCode);
-            pstmt.setString(3, name);
-            pstmt.setString(4, location);
-            pstmt.setString(5, email);
-            pstmt.setInt(6, id);
+            pstmt.setInt(1, department.getSchId());
+            pstmt.setInt(2, department.getDeptCode());
+            pstmt.setString(3, department.getName());
+            pstmt.setString(4, department.getLocation());
+            pstmt.setString(5, department.getEmail());
+            pstmt.setInt(6, department.getId());
+            pstmt.setLong(7, department.getVersion());
+            pstmt.setLong(8, department.getVersion());
             
-            return pstmt.executeUpdate();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return department.withVersion(rs.getLong(1));
+                }
+            }
         }
+        return department.getVersion() == 0 ? null : checkConflict(conn, department.getId(), department.getVersion());
     }
     
     /**
-     * Delete department by ID
+     * Delete department by ID regardless of its current version
      * @param id Department ID to delete
      * @return Number of rows affected
      * @throws SQLException if query fails
      */
     public static int deleteDepartment(int id) throws SQLException {
-        try (Connection conn = getConnection();
-             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM departments WHERE id = ?")) {
+        return deleteDepartment(id, 0);
+    }
+    
+    /**
+     * Delete department by ID if it still has the version it was read at
+     * @param id Department ID to delete
+     * @param expectedVersion Version the department was read at, or 0 to delete whatever the version
+     * @return Number of rows affected
+     * @throws DepartmentConflictException if the department was changed since it was read
+     * @throws SQLException if query fails
+     */
+    public static int deleteDepartment(int id, long expectedVersion) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            int count = deleteDepartment(conn, id, expectedVersion);
+            DatabaseMetrics.DELETE.record(start, count);
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.DELETE.recordError(start);
+            throw e;
+        } finally {
+            departmentChanged(id);
+        }
+    }
+    
+    /**
+     * Delete a department on a caller-supplied connection
+     * @param conn Open connection; the caller controls the transaction
+     * @param expectedVersion Version the department was read at, or 0 to delete whatever the version
+     * @return Number of rows affected
+     * @throws DepartmentConflictException if the department was changed since it was read
+     * @throws SQLException if database error occurs
+     */
+    static int deleteDepartment(Connection conn, int id, long expectedVersion) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                 "DELETE FROM departments WHERE id = ? AND (? = 0 OR version = ?)")) {
             
             pstmt.setInt(1, id);
-            return pstmt.executeUpdate();
+            pstmt.setLong(2, expectedVersion);
+            pstmt.setLong(3, expectedVersion);
+            if (pstmt.executeUpdate() > 0) {
+                return 1;
+            }
+        }
+        if (expectedVersion != 0) {
+            checkConflict(conn, id, expectedVersion);
         }
+        return 0;
     }
     
     /**
-     * Utility method to safely close database resources
-     * @param conn Database connection to close
-     * @param stmt Statement to close
-     * @param rs ResultSet to close
+     * Called when a versioned write matched no row: tell a missing row from one that has moved on
+     * @return null if the department does not exist
+     * @throws DepartmentConflictException with the stored row if it exists
      */
-    private static void closeResources(Connection conn, Statement stmt, ResultSet rs) {
+    private static Department checkConflict(Connection conn, int id, long expectedVersion) throws SQLException {
+        Department current = loadDepartmentById(conn, id);
+        if (current == null) {
+            return null;
+        }
+        throw new DepartmentConflictException("Department " + id + " was changed by someone else (version "
+            + expectedVersion + " expected, now " + current.getVersion() + ")", id, current);
+    }
+    
+    /**
+     * Insert many departments in a single transaction.
+     * Departments with an ID greater than zero are inserted with that ID; others get a generated ID.
+     * @param departments Departments to insert
+     * @return Outcome of each row, in iteration order; CONFLICT for IDs that are already in use
+     * @throws SQLException if the transaction cannot be run or committed
+     */
+    public static BatchResult insertDepartments(Collection<Department> departments) throws SQLException {
+        return insertDepartments(departments, getConfig().getBatchSize());
+    }
+    
+    /**
+     * Insert many departments in a single transaction
+     * @param departments Departments to insert
+     * @param batchSize Rows sent per executeBatch call
+     * @return Outcome of each row, in iteration order; CONFLICT for IDs that are already in use
+     * @throws SQLException if the transaction cannot be run or committed
+     */
+    public static BatchResult insertDepartments(Collection<Department> departments, int batchSize) throws SQLException {
+        return executeBatch(DatabaseMetrics.INSERT_BATCH,
+            "INSERT INTO departments (id, sch_id, dept_code, dept_name, dept_location, dept_email) VALUES (?, ?, ?, ?, ?, ?) "
+                + "ON CONFLICT(id) DO NOTHING",
+            new ArrayList<>(departments), batchSize, (pstmt, department) -> {
+                if (department.getId() > 0) {
+                    pstmt.setInt(1, department.getId());
+                } else {
+                    pstmt.setNull(1, Types.INTEGER); // SQLite assigns the next ID
+                }
+                pstmt.setInt(2, department.getSchId());
+                pstmt.setInt(3, department.getDeptCode());
+                pstmt.setString(4, department.getName());
+                pstmt.setString(5, department.getLocation());
+                pstmt.setString(6, department.getEmail());
+            }, (conn, department) -> BatchResult.Outcome.CONFLICT);
+    }
+    
+    /**
+     * Update many departments by ID in a single transaction.
+     * Departments with a version are only written if the stored row still has that version.
+     * @param departments Departments holding the new values
+     * @return Outcome of each row, in iteration order; NO_MATCH for IDs that do not exist,
+     *     CONFLICT for departments changed since they were read
+     * @throws SQLException if the transaction cannot be run or committed
+     */
+    public static BatchResult updateDepartments(Collection<Department> departments) throws SQLException {
+        return updateDepartments(departments, getConfig().getBatchSize());
+    }
+    
+    /**
+     * Update many departments by ID in a single transaction
+     * @param departments Departments holding the new values
+     * @param batchSize Rows sent per executeBatch call
+     * @return Outcome of each row, in iteration order; NO_MATCH for IDs that do not exist,
+     *     CONFLICT for departments changed since they were read
+     * @throws SQLException if the transaction cannot be run or committed
+     */
+    public static BatchResult updateDepartments(Collection<Department> departments, int batchSize) throws SQLException {
+        return executeBatch(DatabaseMetrics.UPDATE_BATCH,
+            "UPDATE departments SET sch_id = ?, dept_code = ?, dept_name = ?, dept_location = ?, dept_email = ?, "
+                + "version = version + 1 WHERE id = ? AND (? = 0 OR version = ?)",
+            new ArrayList<>(departments), batchSize, (pstmt, department) -> {
+                pstmt.setInt(1, department.getSchId());
+                pstmt.setInt(2, department.getDeptCode());
+                pstmt.setString(3, department.getName());
+                pstmt.setString(4, department.getLocation());
+                pstmt.setString(5, department.getEmail());
+                pstmt.setInt(6, department.getId());
+                pstmt.setLong(7, department.getVersion());
+                pstmt.setLong(8, department.getVersion());
+            }, (conn, department) -> department.getVersion() != 0 && loadDepartmentById(conn, department.getId()) != null
+                ? BatchResult.Outcome.CONFLICT : BatchResult.Outcome.NO_MATCH);
+    }
+    
+    /**
+     * Delete many departments by ID in a single transaction
+     * @param ids IDs of the departments to delete
+     * @return Outcome of each row, in iteration order; NO_MATCH for IDs that do not exist
+     * @throws SQLException if the transaction cannot be run or committed
+     */
+    public static BatchResult deleteDepartments(Collection<Integer> ids) throws SQLException {
+        return deleteDepartments(ids, getConfig().getBatchSize());
+    }
+    
+    /**
+     * Delete many departments by ID in a single transaction
+     * @param ids IDs of the departments to delete
+     * @param batchSize Rows sent per executeBatch call
+     * @return Outcome of each row, in iteration order; NO_MATCH for IDs that do not exist
+     * @throws SQLException if the transaction cannot be run or committed
+     */
+    public static BatchResult deleteDepartments(Collection<Integer> ids, int batchSize) throws SQLException {
+        return executeBatch(DatabaseMetrics.DELETE_BATCH, "DELETE FROM departments WHERE id = ?",
+            new ArrayList<>(ids), batchSize, (pstmt, id) -> pstmt.setInt(1, id), (conn, id) -> BatchResult.Outcome.NO_MATCH);
+    }
+    
+    /**
+     * Binds one item of a batch to the parameters of a statement
+     */
+    @FunctionalInterface
+    private interface BatchBinder<T> {
+        void bind(PreparedStatement pstmt, T item) throws SQLException;
+    }
+    
+    /**
+     * Decides the outcome of a batch item whose statement changed no row.
+     * Runs inside the batch transaction, so it sees the rows as the statement did.
+     */
+    @FunctionalInterface
+    private interface UnmatchedItem<T> {
+        BatchResult.Outcome classify(Connection conn, T item) throws SQLException;
+    }
+    
+    /**
+     * Run one statement for every item inside a single transaction, sending chunks with executeBatch.
+     * If a chunk fails, it is rolled back to its savepoint and replayed row by row,
+     * so one bad row is reported as FAILED without losing the rest of the batch.
+     * @param metrics Where the call is recorded; rows are the items applied
+     * @param sql Statement to run for each item
+     * @param items Items in submission order
+     * @param batchSize Items per executeBatch call
+     * @param binder Sets the statement parameters for an item
+     * @param unmatched Outcome of items whose statement changed no row
+     * @return Outcome of each item
+     * @throws SQLException if the transaction cannot be run or committed
+     */
+    private static <T> BatchResult executeBatch(OperationMetrics metrics, String sql, List<T> items, int batchSize,
+                                                BatchBinder<T> binder, UnmatchedItem<T> unmatched) throws SQLException {
+        long start = System.nanoTime();
         try {
-            if (rs != null) rs.close();
-            if (stmt != null) stmt.close();
-            if (conn != null) conn.close();
-        } catch (SQLException e) {
-            e.printStackTrace();
+            BatchResult result = executeBatch(sql, items, batchSize, binder, unmatched);
+            metrics.record(start, result.getAppliedCount());
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(start);
+            throw e;
+        }
+    }
+    
+    private static <T> BatchResult executeBatch(String sql, List<T> items, int batchSize, BatchBinder<T> binder,
+                                                UnmatchedItem<T> unmatched) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        BatchResult result = new BatchResult(items.size());
+        if (items.isEmpty()) {
+            return result;
+        }
+        
+        try (Connection conn = getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            conn.setAutoCommit(false);
+            try {
+                for (int start = 0; start < items.size(); start += batchSize) {
+                    int end = Math.min(items.size(), start + batchSize);
+                    Savepoint chunkStart = conn.setSavepoint();
+                    try {
+                        for (int i = start; i < end; i++) {
+                            binder.bind(pstmt, items.get(i));
+                            pstmt.addBatch();
+                        }
+                        int[] counts = pstmt.executeBatch();
+                        for (int i = start; i < end; i++) {
+                            int count = counts[i - start];
+                            result.set(i, count == 0 ? unmatched.classify(conn, items.get(i)) : BatchResult.Outcome.APPLIED, null);
+                        }
+                    } catch (SQLException e) {
+                        pstmt.clearBatch();
+                        conn.rollback(chunkStart);
+                        replayRowByRow(conn, pstmt, items, start, end, binder, unmatched, result);
+                    }
+                    conn.releaseSavepoint(chunkStart);
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } finally {
+            // Bulk writes can touch any ID (including auto-assigned ones), so drop the whole cache
+            departmentsChanged();
+        }
+        return result;
+    }
+    
+    /**
+     * Run a failed chunk one row at a time to find out which rows fail
+     */
+    private static <T> void replayRowByRow(Connection conn, PreparedStatement pstmt, List<T> items, int start, int end,
+                                           BatchBinder<T> binder, UnmatchedItem<T> unmatched,
+                                           BatchResult result) throws SQLException {
+        for (int i = start; i < end; i++) {
+            try {
+                binder.bind(pstmt, items.get(i));
+                int count = pstmt.executeUpdate();
+                result.set(i, count == 0 ? unmatched.classify(conn, items.get(i)) : BatchResult.Outcome.APPLIED, null);
+            } catch (SQLException e) {
+                // A failed statement is undone by SQLite without ending the transaction
+                result.set(i, BatchResult.Outcome.FAILED, e.getMessage());
+            }
         }
     }
 }
@@ -0,0 +1,102 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Metrics for every DatabaseConnector operation, the department list load and change polling.
+ * <p>
+ * Each operation is recorded once, by the method that does the work; overloads that delegate
+ * are not counted again. Operations used inside another (a page fetch during a list load, say)
+ * are counted under both. Visible over JMX (see {@link DatabaseMetricsMXBean}) and in the
+ * diagnostics window.
+ */
+public class DatabaseMetrics implements DatabaseMetricsMXBean {
+    public static final String OBJECT_NAME = "dms:type=DatabaseMetrics";
+
+    public static final OperationMetrics LOGIN = new OperationMetrics("login");
+    public static final OperationMetrics GET_ALL = new OperationMetrics("getAllDepartments");
+    public static final OperationMetrics FOR_EACH = new OperationMetrics("forEachDepartment");
+    public static final OperationMetrics GET_BY_ID = new OperationMetrics("getDepartmentById");
+    public static final OperationMetrics COUNT = new OperationMetrics("countDepartments");
+    public static final OperationMetrics FOR_EACH_ID = new OperationMetrics("forEachDepartmentId");
+    public static final OperationMetrics GET_PAGE = new OperationMetrics("getDepartmentPage");
+    public static final OperationMetrics GET_BY_IDS = new OperationMetrics("getDepartmentsByIds");
+    public static final OperationMetrics INSERT = new OperationMetrics("insertDepartment");
+    public static final OperationMetrics UPDATE = new OperationMetrics("updateDepartment");
+    public static final OperationMetrics DELETE = new OperationMetrics("deleteDepartment");
+    public static final OperationMetrics INSERT_BATCH = new OperationMetrics("insertDepartments");
+    public static final OperationMetrics UPDATE_BATCH = new OperationMetrics("updateDepartments");
+    public static final OperationMetrics DELETE_BATCH = new OperationMetrics("deleteDepartments");
+    public static final OperationMetrics WRITE_QUEUE_COMMIT = new OperationMetrics("writeQueueCommit");
+    public static final OperationMetrics LIST_LOAD = new OperationMetrics("listLoad");
+    public static final OperationMetrics CHANGE_POLL = new OperationMetrics("readChanges");
+
+    private static final List<OperationMetrics> ALL = Collections.unmodifiableList(Arrays.asList(
+        LOGIN, GET_ALL, FOR_EACH, GET_BY_ID, COUNT, FOR_EACH_ID, GET_PAGE, GET_BY_IDS,
+        INSERT, UPDATE, DELETE, INSERT_BATCH, UPDATE_BATCH, DELETE_BATCH, WRITE_QUEUE_COMMIT, LIST_LOAD,
+        CHANGE_POLL));
+
+    private static boolean registered;
+
+    /**
+     * @return Every instrumented operation, in display order
+     */
+    public static List<OperationMetrics> all() {
+        return ALL;
+    }
+
+    /**
+     * Register the MBean with the platform MBean server; later calls do nothing.
+     * Failures are reported but never stop the application.
+     */
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new DatabaseMetrics(), new ObjectName(OBJECT_NAME));
+            registered = true;
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by another copy of this class (e.g. a second class loader)
+            registered = true;
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public List<OperationMetrics.Statistics> getOperations() {
+        List<OperationMetrics.Statistics> statistics = new ArrayList<>(ALL.size());
+        for (OperationMetrics operation : ALL) {
+            statistics.add(operation.getStatistics());
+        }
+        return statistics;
+    }
+
+    @Override
+    public ConnectionPool.Statistics getConnectionPool() {
+        return DatabaseConnector.getPoolStatistics();
+    }
+
+    @Override
+    public DepartmentCache.Statistics getDepartmentCache() {
+        return DatabaseConnector.getCacheStatistics();
+    }
+
+    @Override
+    public int getWriteQueuePending() {
+        return DatabaseConnector.getWriteQueuePending();
+    }
+
+    @Override
+    public void reset() {
+        for (OperationMetrics operation : ALL) {
+            operation.reset();
+        }
+    }
+}
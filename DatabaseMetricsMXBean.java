@@ -0,0 +1,31 @@
+import java.util.List;
+
+/**
+ * JMX view of {@link DatabaseMetrics}, registered as {@value DatabaseMetrics#OBJECT_NAME}
+ */
+public interface DatabaseMetricsMXBean {
+    /**
+     * @return Counters and latency percentiles for every instrumented operation
+     */
+    List<OperationMetrics.Statistics> getOperations();
+
+    /**
+     * @return Connection pool and statement cache counters, or null before the pool exists
+     */
+    ConnectionPool.Statistics getConnectionPool();
+
+    /**
+     * @return Department cache counters
+     */
+    DepartmentCache.Statistics getDepartmentCache();
+
+    /**
+     * @return Mutations waiting in the write queue
+     */
+    int getWriteQueuePending();
+
+    /**
+     * Clear the operation counters
+     */
+    void reset();
+}
@@ -0,0 +1,94 @@
+/**
+ * A single row of the departments table
+ */
+public class Department {
+    private final int id;
+    private final int schId;
+    private final int deptCode;
+    private final String name;
+    private final String location;
+    private final String email;
+    private final long version;
+
+    /**
+     * Create a department record whose row version is unknown.
+     * Writes of such a record overwrite the row whatever its version.
+     * @param id Department ID
+     * @param schId School ID
+     * @param deptCode Department code
+     * @param name Department name
+     * @param location Department location (may be null)
+     * @param email Department email (may be null)
+     */
+    public Department(int id, int schId, int deptCode, String name, String location, String email) {
+        this(id, schId, deptCode, name, location, email, 0);
+    }
+
+    /**
+     * Create a department record
+     * @param id Department ID
+     * @param schId School ID
+     * @param deptCode Department code
+     * @param name Department name
+     * @param location Department location (may be null)
+     * @param email Department email (may be null)
+     * @param version Row version the values were read at, or 0 if unknown
+     */
+    public Department(int id, int schId, int deptCode, String name, String location, String email, long version) {
+        this.id = id;
+        this.schId = schId;
+        this.deptCode = deptCode;
+        this.name = name;
+        this.location = location;
+        this.email = email;
+        this.version = version;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getSchId() {
+        return schId;
+    }
+
+    public int getDeptCode() {
+        return deptCode;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Row version, incremented by every update; updates and deletes of this record
+     * only apply if the row still has it
+     * @return Version, or 0 if unknown
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Copy with another row version
+     * @param version New version
+     * @return Department with the same values
+     */
+    public Department withVersion(long version) {
+        return new Department(id, schId, deptCode, name, location, email, version);
+    }
+
+    @Override
+    public String toString() {
+        return "Department[id=" + id + ", schId=" + schId + ", deptCode=" + deptCode
+            + ", name=" + name + ", location=" + location + ", email=" + email + ", version=" + version + "]";
+    }
+}
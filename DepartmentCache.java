@@ -0,0 +1,192 @@
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through LRU cache of department records keyed by ID.
+ * <p>
+ * Misses are loaded from the database and remembered, including "no such department" results.
+ * Entries are dropped when the cache is full (least recently used first), when they are older
+ * than the optional time-to-live, and when a local write touches their ID.
+ * <p>
+ * A load that overlaps an invalidation is returned to its caller but not cached, so a record
+ * read before a write commits can never be served after it.
+ */
+public class DepartmentCache {
+    /**
+     * Reads one department from the database
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @param id Department ID
+         * @return The department, or null if it does not exist
+         * @throws SQLException if the query fails
+         */
+        Department load(int id) throws SQLException;
+    }
+
+    /**
+     * A cached lookup result; department is null for IDs known not to exist
+     */
+    private static class Entry {
+        final Department department;
+        final long loadedAt;
+
+        Entry(Department department, long loadedAt) {
+            this.department = department;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Loader loader;
+
+    // Access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Bumped by every invalidation; a load only caches its result if this did not change meanwhile
+    private long invalidationCount;
+
+    // Statistics, guarded by this
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    /**
+     * @param maxSize Maximum number of cached IDs (0 disables caching)
+     * @param ttlMillis Time after which an entry is reloaded, or 0 for no expiry
+     * @param loader Reads a department on a miss
+     */
+    public DepartmentCache(int maxSize, long ttlMillis, Loader loader) {
+        if (maxSize < 0 || ttlMillis < 0) {
+            throw new IllegalArgumentException("Invalid cache settings: maxSize=" + maxSize + ", ttl=" + ttlMillis);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.loader = loader;
+    }
+
+    /**
+     * Get a department, loading it on a miss
+     * @param id Department ID
+     * @return The department, or null if it does not exist
+     * @throws SQLException if the load fails
+     */
+    public Department get(int id) throws SQLException {
+        long startCount;
+        synchronized (this) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                if (ttlNanos == 0 || System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits++;
+                    return entry.department;
+                }
+                entries.remove(id);
+                expirations++;
+            }
+            misses++;
+            startCount = invalidationCount;
+        }
+
+        // Load outside the lock so a slow query does not block other lookups
+        long loadedAt = System.nanoTime();
+        Department department = loader.load(id);
+
+        synchronized (this) {
+            if (maxSize > 0 && invalidationCount == startCount) {
+                entries.put(id, new Entry(department, loadedAt));
+                evictIfNeeded();
+            }
+        }
+        return department;
+    }
+
+    /**
+     * Forget one department; call after a write to it has been committed
+     * @param id Department ID
+     */
+    public synchronized void invalidate(int id) {
+        invalidationCount++;
+        invalidations++;
+        entries.remove(id);
+    }
+
+    /**
+     * Forget every department; call after bulk writes
+     */
+    public synchronized void invalidateAll() {
+        invalidationCount++;
+        invalidations++;
+        entries.clear();
+    }
+
+    /**
+     * Take a snapshot of the cache counters
+     * @return Current cache statistics
+     */
+    public synchronized Statistics getStatistics() {
+        return new Statistics(entries.size(), maxSize, hits, misses, evictions, expirations, invalidations);
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Integer, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Point-in-time cache counters
+     */
+    public static class Statistics {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long invalidations;
+
+        private Statistics(int size, int maxSize, long hits, long misses, long evictions,
+                           long expirations, long invalidations) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+        }
+
+        public int getSize() { return size; }
+        public int getMaxSize() { return maxSize; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public long getExpirations() { return expirations; }
+        public long getInvalidations() { return invalidations; }
+
+        /**
+         * Fraction of lookups served from the cache
+         * @return Hit rate between 0 and 1
+         */
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("size=%d/%d, hits=%d, misses=%d, hitRate=%.2f, evictions=%d, expirations=%d, invalidations=%d",
+                size, maxSize, hits, misses, getHitRate(), evictions, expirations, invalidations);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notices department changes committed by other connections and processes, without re-reading the table.
+ * <p>
+ * A background thread polls PRAGMA data_version on a connection of its own. SQLite changes that
+ * value only when another connection commits, so while nothing happens a poll costs one PRAGMA.
+ * When it moves, the departments recorded in department_changes after the last sequence number
+ * seen are read together with their current values, their cache entries are dropped, and they
+ * are handed to the listeners. Listeners are called on the monitor thread.
+ */
+public class DepartmentChangeMonitor {
+    // Past this many changed departments in one poll, listeners are told to reload instead
+    static final int MAX_CHANGES = 1000;
+
+    /**
+     * The latest state of one changed department
+     */
+    public static class Change {
+        private final int id;
+        private final Department department;
+
+        Change(int id, Department department) {
+            this.id = id;
+            this.department = department;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return The department as stored now, or null if it was deleted
+         */
+        public Department getDepartment() {
+            return department;
+        }
+
+        public boolean isDeleted() {
+            return department == null;
+        }
+    }
+
+    /**
+     * Receives the changes found by a poll
+     */
+    public interface Listener {
+        /**
+         * Departments changed since the previous call
+         * @param changes One entry per department, in the order of their latest change
+         */
+        void departmentsChanged(List<Change> changes);
+
+        /**
+         * More departments changed than are worth listing one by one; reload everything shown
+         */
+        void departmentsReset();
+    }
+
+    private final String jdbcUrl;
+    private final List<String> initStatements;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService poller;
+
+    // Only used on the poller thread
+    private Connection connection;
+    private long dataVersion = -1;
+    private long lastSequence = -1;
+
+    /**
+     * Open the monitor and start polling
+     * @param jdbcUrl Database to watch
+     * @param initStatements Statements run on the monitor's connection when it is opened
+     * @param pollMillis Delay between polls
+     */
+    public DepartmentChangeMonitor(String jdbcUrl, List<String> initStatements, long pollMillis) {
+        if (pollMillis <= 0) {
+            throw new IllegalArgumentException("Poll interval must be positive: " + pollMillis);
+        }
+        this.jdbcUrl = jdbcUrl;
+        this.initStatements = initStatements;
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "department-change-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 0, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stop polling and close the monitor's connection
+     */
+    public void close() {
+        poller.shutdownNow();
+        try {
+            poller.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeConnection();
+    }
+
+    /**
+     * Check for new commits and report the departments they changed
+     */
+    private void poll() {
+        try {
+            if (connection == null) {
+                open();
+            }
+            long version = queryLong("PRAGMA data_version");
+            if (version == dataVersion) {
+                return;
+            }
+            dataVersion = version;
+            readChanges();
+        } catch (SQLException e) {
+            // Reopen on the next poll; changes since lastSequence are read then
+            e.printStackTrace();
+            closeConnection();
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule, so a failing listener only loses this poll
+            e.printStackTrace();
+        }
+    }
+
+    private void open() throws SQLException {
+        connection = DriverManager.getConnection(jdbcUrl);
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : initStatements) {
+                stmt.execute(sql);
+            }
+        }
+        dataVersion = -1;
+        if (lastSequence < 0) {
+            // Changes made before the monitor started are already in what the lists loaded
+            lastSequence = queryLong("SELECT COALESCE(MAX(seq), 0) FROM department_changes");
+        }
+    }
+
+    private void readChanges() throws SQLException {
+        long start = System.nanoTime();
+        List<Change> changes = new ArrayList<>();
+        long sequence = lastSequence;
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                 "SELECT c.seq, c.dept_id, d.id, d.sch_id, d.dept_code, d.dept_name, d.dept_location, d.dept_email, d.version "
+                     + "FROM department_changes c LEFT JOIN departments d ON d.id = c.dept_id "
+                     + "WHERE c.seq > ? ORDER BY c.seq LIMIT ?")) {
+            pstmt.setLong(1, lastSequence);
+            pstmt.setInt(2, MAX_CHANGES + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    sequence = rs.getLong(1);
+                    int id = rs.getInt(2);
+                    rs.getInt(3); // d.id is NULL once the department has been deleted
+                    Department department = rs.wasNull() ? null : new Department(id, rs.getInt(4), rs.getInt(5),
+                        rs.getString(6), rs.getString(7), rs.getString(8), rs.getLong(9));
+                    changes.add(new Change(id, department));
+                }
+            }
+            DatabaseMetrics.CHANGE_POLL.record(start, changes.size());
+        } catch (SQLException | RuntimeException e) {
+            DatabaseMetrics.CHANGE_POLL.recordError(start);
+            throw e;
+        }
+
+        if (changes.size() > MAX_CHANGES) {
+            // Everything up to now is covered by the reload
+            lastSequence = queryLong("SELECT COALESCE(MAX(seq), 0) FROM department_changes");
+            DatabaseConnector.departmentsChanged();
+            for (Listener listener : listeners) {
+                listener.departmentsReset();
+            }
+            return;
+        }
+        if (changes.isEmpty()) {
+            return; // Commits to other tables
+        }
+        lastSequence = sequence;
+        for (Change change : changes) {
+            DatabaseConnector.departmentChanged(change.getId());
+        }
+        List<Change> published = Collections.unmodifiableList(changes);
+        for (Listener listener : listeners) {
+            listener.departmentsChanged(published);
+        }
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            connection = null;
+        }
+    }
+}
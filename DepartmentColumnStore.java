@@ -0,0 +1,155 @@
+import java.util.Arrays;
+
+/**
+ * Column-oriented storage for a block of department rows.
+ * Numeric columns are kept in primitive int arrays and text columns hold pooled
+ * string references, so a row costs a few array slots instead of a boxed Object[].
+ * Reads never allocate.
+ */
+public class DepartmentColumnStore {
+    // Version of a row whose values could not be read
+    private static final long MISSING = -1;
+
+    private final StringPool stringPool;
+    private int size;
+    private int[] ids;
+    private int[] schIds;
+    private int[] deptCodes;
+    private String[] names;
+    private String[] locations;
+    private String[] emails;
+    private long[] versions;
+
+    /**
+     * Create an empty store
+     * @param initialCapacity Number of rows to allocate up front
+     * @param stringPool Pool used to share equal text values
+     */
+    public DepartmentColumnStore(int initialCapacity, StringPool stringPool) {
+        this.stringPool = stringPool;
+        int capacity = Math.max(1, initialCapacity);
+        ids = new int[capacity];
+        schIds = new int[capacity];
+        deptCodes = new int[capacity];
+        names = new String[capacity];
+        locations = new String[capacity];
+        emails = new String[capacity];
+        versions = new long[capacity];
+    }
+
+    /**
+     * Append a row
+     * @param id Department ID
+     * @param schId School ID
+     * @param deptCode Department code
+     * @param name Department name
+     * @param location Department location (may be null)
+     * @param email Department email (may be null)
+     * @param version Row version, or 0 if unknown
+     */
+    public void add(int id, int schId, int deptCode, String name, String location, String email, long version) {
+        if (size == ids.length) {
+            grow();
+        }
+        ids[size] = id;
+        schIds[size] = schId;
+        deptCodes[size] = deptCode;
+        names[size] = stringPool.pool(name);
+        locations[size] = stringPool.pool(location);
+        emails[size] = stringPool.pool(email);
+        versions[size] = version;
+        size++;
+    }
+
+    /**
+     * Append an empty row for a department whose values could not be read, e.g. because it was deleted
+     * @param id Department ID
+     */
+    public void addMissing(int id) {
+        add(id, 0, 0, null, null, null, MISSING);
+    }
+
+    /**
+     * Overwrite the non-key columns of a row
+     * @param row Row index
+     * @param schId School ID
+     * @param deptCode Department code
+     * @param name Department name
+     * @param location Department location (may be null)
+     * @param email Department email (may be null)
+     * @param version Row version, or 0 if unknown
+     */
+    public void set(int row, int schId, int deptCode, String name, String location, String email, long version) {
+        schIds[row] = schId;
+        deptCodes[row] = deptCode;
+        names[row] = stringPool.pool(name);
+        locations[row] = stringPool.pool(location);
+        emails[row] = stringPool.pool(email);
+        versions[row] = version;
+    }
+
+    /**
+     * Number of rows in the store
+     * @return Row count
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getId(int row) {
+        return ids[row];
+    }
+
+    public int getSchId(int row) {
+        return schIds[row];
+    }
+
+    public int getDeptCode(int row) {
+        return deptCodes[row];
+    }
+
+    public String getName(int row) {
+        return names[row];
+    }
+
+    public String getLocation(int row) {
+        return locations[row];
+    }
+
+    public String getEmail(int row) {
+        return emails[row];
+    }
+
+    public long getVersion(int row) {
+        return versions[row];
+    }
+
+    /**
+     * Check whether a row was added with {@link #addMissing} and has not been set since
+     * @param row Row index
+     * @return true if the row holds no values
+     */
+    public boolean isMissing(int row) {
+        return versions[row] == MISSING;
+    }
+
+    /**
+     * Copy a row out as a record
+     * @param row Row index
+     * @return New Department holding the row values
+     */
+    public Department getDepartment(int row) {
+        return new Department(ids[row], schIds[row], deptCodes[row], names[row], locations[row], emails[row], versions[row]);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        schIds = Arrays.copyOf(schIds, capacity);
+        deptCodes = Arrays.copyOf(deptCodes, capacity);
+        names = Arrays.copyOf(names, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        emails = Arrays.copyOf(emails, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+    }
+}
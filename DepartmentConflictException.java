@@ -0,0 +1,36 @@
+import java.sql.SQLException;
+
+/**
+ * A department write was refused because it was based on a stale view of the row:
+ * an update or delete of a department that changed since it was read, or an insert with an
+ * ID that is already taken. Carries the row as it is now so the user can merge their changes.
+ */
+public class DepartmentConflictException extends SQLException {
+    private static final long serialVersionUID = 1L;
+
+    private final int id;
+    private final transient Department current;
+
+    /**
+     * @param message Description of the conflict
+     * @param id ID of the department written
+     * @param current The department as currently stored
+     */
+    public DepartmentConflictException(String message, int id, Department current) {
+        super(message);
+        this.id = id;
+        this.current = current;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * The department as stored when the conflict was detected
+     * @return Current row, including its version
+     */
+    public Department getCurrent() {
+        return current;
+    }
+}
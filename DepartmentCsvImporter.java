@@ -0,0 +1,459 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams departments from a CSV file into the database.
+ * <p>
+ * One thread reads records in chunks, a pool of parser threads splits and validates them with
+ * the same rules as the edit form, and the calling thread writes valid rows through batched
+ * transactions. The queues between the stages are bounded, so a slow database holds back
+ * the reader instead of letting the file pile up in memory.
+ * <p>
+ * Columns are {@code sch_id, dept_code, dept_name, dept_location, dept_email}, optionally preceded
+ * by {@code id}. A header row naming the columns may be given in any order. Rejected rows are
+ * written to an error file together with the reason.
+ */
+public class DepartmentCsvImporter {
+    /**
+     * Receives progress while an import runs
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void progress(long rowsRead, long imported, long rejected);
+    }
+
+    /**
+     * Totals of a finished import
+     */
+    public static class Result {
+        private final long rowsRead;
+        private final long imported;
+        private final long rejected;
+        private final Path errorFile;
+        private final boolean cancelled;
+
+        Result(long rowsRead, long imported, long rejected, Path errorFile, boolean cancelled) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.errorFile = errorFile;
+            this.cancelled = cancelled;
+        }
+
+        public long getRowsRead() { return rowsRead; }
+        public long getImported() { return imported; }
+        public long getRejected() { return rejected; }
+        public Path getErrorFile() { return errorFile; }
+        public boolean isCancelled() { return cancelled; }
+
+        @Override
+        public String toString() {
+            return rowsRead + " rows read, " + imported + " imported, " + rejected + " rejected"
+                + (rejected > 0 ? " (see " + errorFile + ")" : "") + (cancelled ? ", cancelled" : "");
+        }
+    }
+
+    private static final String[] COLUMNS = {"id", "sch_id", "dept_code", "dept_name", "dept_location", "dept_email"};
+    private static final int ID = 0, SCH_ID = 1, DEPT_CODE = 2, NAME = 3, LOCATION = 4, EMAIL = 5;
+
+    private static final int LINES_PER_CHUNK = 1000;
+
+    private final int parserThreads;
+    private final int batchSize;
+    private volatile boolean cancelled;
+
+    /**
+     * Create an importer with one parser thread per core and the default batch size
+     */
+    public DepartmentCsvImporter() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), 1000);
+    }
+
+    /**
+     * Create an importer
+     * @param parserThreads Number of threads parsing and validating lines
+     * @param batchSize Rows written per transaction
+     */
+    public DepartmentCsvImporter(int parserThreads, int batchSize) {
+        if (parserThreads < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("parserThreads and batchSize must be positive");
+        }
+        this.parserThreads = parserThreads;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Stop a running import after the batch currently being written
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Default location of the error file for an input file
+     * @param csv Input file
+     * @return Path next to the input, named after it
+     */
+    public static Path defaultErrorFile(Path csv) {
+        return csv.resolveSibling(csv.getFileName() + ".errors.csv");
+    }
+
+    /**
+     * Import a CSV file
+     * @param csv Input file
+     * @param errorFile File receiving rejected rows; created even if nothing is rejected
+     * @param listener Progress callback, called from the writing thread (may be null)
+     * @return Import totals
+     * @throws IOException if the input cannot be read or the error file cannot be written
+     * @throws SQLException if a batch transaction cannot be committed
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public Result importFile(Path csv, Path errorFile, ProgressListener listener)
+            throws IOException, SQLException, InterruptedException {
+        BlockingQueue<LineChunk> lineQueue = new ArrayBlockingQueue<>(parserThreads * 2);
+        BlockingQueue<ParsedChunk> rowQueue = new ArrayBlockingQueue<>(parserThreads * 2);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        ExecutorService workers = Executors.newFixedThreadPool(parserThreads + 1, r -> {
+            Thread t = new Thread(r, "csv-import");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long rowsRead = 0, imported = 0, rejected = 0;
+        try (LineNumberReader reader = new LineNumberReader(Files.newBufferedReader(csv, StandardCharsets.UTF_8));
+             BufferedWriter errors = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8)) {
+
+            errors.write("line,error,record");
+            errors.newLine();
+
+            workers.execute(() -> readLines(reader, lineQueue, failure));
+            for (int i = 0; i < parserThreads; i++) {
+                workers.execute(() -> parseLines(lineQueue, rowQueue, failure));
+            }
+
+            // Write on this thread until every parser has finished
+            List<Department> batch = new ArrayList<>(batchSize);
+            List<ParsedRow> batchRows = new ArrayList<>(batchSize);
+            int parsersDone = 0;
+            while (parsersDone < parserThreads) {
+                ParsedChunk chunk = rowQueue.take();
+                if (chunk == ParsedChunk.END) {
+                    parsersDone++;
+                    continue;
+                }
+                rowsRead += chunk.lineCount;
+                for (ParsedRow row : chunk.rows) {
+                    if (row.error != null) {
+                        writeError(errors, row.lineNumber, row.error, row.line);
+                        rejected++;
+                    } else if (!cancelled) {
+                        batch.add(row.department);
+                        batchRows.add(row);
+                    }
+                }
+                if (batch.size() >= batchSize) {
+                    int written = writeBatch(batch, batchRows, errors);
+                    imported += written;
+                    rejected += batch.size() - written;
+                    batch.clear();
+                    batchRows.clear();
+                }
+                if (listener != null) {
+                    listener.progress(rowsRead, imported, rejected);
+                }
+            }
+            if (!batch.isEmpty() && !cancelled) {
+                int written = writeBatch(batch, batchRows, errors);
+                imported += written;
+                rejected += batch.size() - written;
+            }
+            if (listener != null) {
+                listener.progress(rowsRead, imported, rejected);
+            }
+        } finally {
+            cancelled = cancelled || failure.get() != null;
+            workers.shutdownNow();
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+
+        Exception error = failure.get();
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        } else if (error != null) {
+            throw new IOException("Import failed: " + error.getMessage(), error);
+        }
+        return new Result(rowsRead, imported, rejected, errorFile, cancelled);
+    }
+
+    /**
+     * Insert one batch and log rows the database refused
+     * @return Number of rows inserted
+     */
+    private int writeBatch(List<Department> batch, List<ParsedRow> rows, BufferedWriter errors)
+            throws SQLException, IOException {
+        BatchResult result = DatabaseConnector.insertDepartments(batch, batch.size());
+        int written = 0;
+        for (int i = 0; i < result.size(); i++) {
+            if (result.getOutcome(i) == BatchResult.Outcome.APPLIED) {
+                written++;
+            } else {
+                ParsedRow row = rows.get(i);
+                String reason = result.getError(i) != null ? result.getError(i) : "Row was not inserted";
+                writeError(errors, row.lineNumber, reason, row.line);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Reader stage: split the file into chunks of records, each numbered by the line it starts on
+     */
+    private void readLines(LineNumberReader reader, BlockingQueue<LineChunk> lineQueue,
+                           AtomicReference<Exception> failure) {
+        try {
+            String line;
+            boolean first = true;
+            int[] header = null;
+            List<String> lines = new ArrayList<>(LINES_PER_CHUNK);
+            long[] lineNumbers = new long[LINES_PER_CHUNK];
+            while (!cancelled) {
+                // Records can span lines, so each one is numbered by the line it starts on
+                long lineNumber = reader.getLineNumber() + 1;
+                if ((line = CsvUtil.readRecord(reader)) == null) {
+                    break;
+                }
+                if (first) {
+                    first = false;
+                    header = parseHeader(line);
+                    if (header != null) {
+                        continue;
+                    }
+                }
+                lineNumbers[lines.size()] = lineNumber;
+                lines.add(line);
+                if (lines.size() == LINES_PER_CHUNK) {
+                    lineQueue.put(new LineChunk(lineNumbers, lines, header));
+                    lines = new ArrayList<>(LINES_PER_CHUNK);
+                    lineNumbers = new long[LINES_PER_CHUNK];
+                }
+            }
+            if (!lines.isEmpty()) {
+                lineQueue.put(new LineChunk(lineNumbers, lines, header));
+            }
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+            cancelled = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                for (int i = 0; i < parserThreads; i++) {
+                    lineQueue.put(LineChunk.END);
+                }
+            } catch (InterruptedException e) {
+                // Only interrupted when the whole import is being torn down
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Parser stage: turn lines into validated departments or rejections
+     */
+    private void parseLines(BlockingQueue<LineChunk> lineQueue, BlockingQueue<ParsedChunk> rowQueue,
+                            AtomicReference<Exception> failure) {
+        try {
+            while (true) {
+                LineChunk chunk = lineQueue.take();
+                if (chunk == LineChunk.END) {
+                    break;
+                }
+                List<ParsedRow> rows = new ArrayList<>(chunk.lines.size());
+                for (int i = 0; i < chunk.lines.size(); i++) {
+                    String line = chunk.lines.get(i);
+                    if (!line.trim().isEmpty()) {
+                        rows.add(parseRow(chunk.lineNumbers[i], line, chunk.header));
+                    }
+                }
+                rowQueue.put(new ParsedChunk(chunk.lines.size(), rows));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            cancelled = true;
+        } finally {
+            try {
+                rowQueue.put(ParsedChunk.END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Parse and validate one record
+     * @param lineNumber Line number in the file where the record starts
+     * @param line Raw record
+     * @param header Column positions from the header row, or null to infer them from the field count
+     * @return Parsed row holding either a department or an error
+     */
+    private static ParsedRow parseRow(long lineNumber, String line, int[] header) {
+        List<String> fields;
+        try {
+            fields = CsvUtil.parseLine(line);
+        } catch (IllegalArgumentException e) {
+            return ParsedRow.rejected(lineNumber, line, e.getMessage());
+        }
+
+        int[] columns = header;
+        if (columns == null) {
+            if (fields.size() == 5) {
+                columns = new int[] {-1, 0, 1, 2, 3, 4};
+            } else if (fields.size() == 6) {
+                columns = new int[] {0, 1, 2, 3, 4, 5};
+            } else {
+                return ParsedRow.rejected(lineNumber, line, "Expected 5 or 6 fields but found " + fields.size());
+            }
+        }
+
+        String id = field(fields, columns[ID]);
+        String schId = field(fields, columns[SCH_ID]);
+        String deptCode = field(fields, columns[DEPT_CODE]);
+        String name = field(fields, columns[NAME]);
+        String location = field(fields, columns[LOCATION]);
+        String email = field(fields, columns[EMAIL]);
+
+        // Same rules as the Manage Departments form
+        String error = DepartmentValidator.validate(id, schId, deptCode, name, false);
+        if (error != null) {
+            return ParsedRow.rejected(lineNumber, line, error);
+        }
+
+        Department department = new Department(
+            id.isEmpty() ? 0 : Integer.parseInt(id),
+            Integer.parseInt(schId),
+            Integer.parseInt(deptCode),
+            name,
+            location.isEmpty() ? null : location,
+            email.isEmpty() ? null : email);
+        return new ParsedRow(lineNumber, line, department, null);
+    }
+
+    /**
+     * Recognise a header row and map its column names to field positions
+     * @param line First line of the file
+     * @return Field position for each of COLUMNS (-1 if absent), or null if the line is data
+     * @throws IOException if the header is missing a required column
+     */
+    private static int[] parseHeader(String line) throws IOException {
+        List<String> fields;
+        try {
+            fields = CsvUtil.parseLine(line);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int[] columns = new int[COLUMNS.length];
+        Arrays.fill(columns, -1);
+        boolean any = false;
+        for (int i = 0; i < fields.size(); i++) {
+            String name = fields.get(i).trim().toLowerCase(Locale.ROOT);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                if (COLUMNS[c].equals(name)) {
+                    columns[c] = i;
+                    any = true;
+                }
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        if (columns[SCH_ID] < 0 || columns[DEPT_CODE] < 0 || columns[NAME] < 0) {
+            throw new IOException("CSV header must name sch_id, dept_code and dept_name columns");
+        }
+        return columns;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index).trim() : "";
+    }
+
+    private static void writeError(BufferedWriter errors, long lineNumber, String reason, String line) throws IOException {
+        StringBuilder out = new StringBuilder();
+        out.append(lineNumber).append(',');
+        CsvUtil.appendField(out, reason);
+        out.append(',');
+        CsvUtil.appendField(out, line);
+        errors.write(out.toString());
+        errors.newLine();
+    }
+
+    /**
+     * A run of consecutive input records
+     */
+    private static class LineChunk {
+        static final LineChunk END = new LineChunk(new long[0], new ArrayList<>(), null);
+
+        final long[] lineNumbers; // Line each record starts on
+        final List<String> lines;
+        final int[] header;
+
+        LineChunk(long[] lineNumbers, List<String> lines, int[] header) {
+            this.lineNumbers = lineNumbers;
+            this.lines = lines;
+            this.header = header;
+        }
+    }
+
+    /**
+     * Parsed rows of one line chunk
+     */
+    private static class ParsedChunk {
+        static final ParsedChunk END = new ParsedChunk(0, new ArrayList<>());
+
+        final int lineCount;
+        final List<ParsedRow> rows;
+
+        ParsedChunk(int lineCount, List<ParsedRow> rows) {
+            this.lineCount = lineCount;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * One input record and either its department or the reason it was rejected
+     */
+    private static class ParsedRow {
+        final long lineNumber;
+        final String line;
+        final Department department;
+        final String error;
+
+        ParsedRow(long lineNumber, String line, Department department, String error) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.department = department;
+            this.error = error;
+        }
+
+        static ParsedRow rejected(long lineNumber, String line, String error) {
+            return new ParsedRow(lineNumber, line, null, error);
+        }
+    }
+}
@@ -1,56 +1,48 @@
+import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
 public class DepartmentEditor extends JFrame {
+    // Answers of askConflictResolution
+    static final int KEEP_MINE = 0;
+    static final int USE_SAVED = 1;
+    
     private JLabel lblId, lblSchId, lblCode, lblName, lblLocation, lblEmail;
     private JTextField txtId, txtSchId, txtCode, txtName, txtLocation, txtEmail;
     private JButton btnSave, btnDelete, btnCancel;
-    private Connection conn;
     private DepartmentListWindow parentView;
     private boolean isEditMode;
     private int editingId;
+    // Version of the row shown in the form; saves and deletes only apply if it is still current
+    private long loadedVersion;
     
     // Constructor for new department
     public DepartmentEditor(DepartmentListWindow parent) {
-        try {
-            this.parentView = parent;
-            this.isEditMode = false;
-            this.conn = DatabaseConnector.getConnection();
-            initComponents("Add New Department");
-            // Remove delete button when in insert mode
-            btnDelete.setVisible(false);
-            setLocationRelativeTo(parent);
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-            dispose();
-        }
+        this.parentView = parent;
+        this.isEditMode = false;
+        initComponents("Add New Department");
+        // Remove delete button when in insert mode
+        btnDelete.setVisible(false);
+        setLocationRelativeTo(parent);
     }
     
     // Constructor for editing existing department
     public DepartmentEditor(DepartmentListWindow parent, int deptId) {
-        try {
-            this.parentView = parent;
-            this.isEditMode = true;
-            this.editingId = deptId;
-            this.conn = DatabaseConnector.getConnection();
-            initComponents("Edit Department");
-            loadDepartmentData(deptId);
-            setLocationRelativeTo(parent);
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-            dispose();
-        }
+        this.parentView = parent;
+        this.isEditMode = true;
+        this.editingId = deptId;
+        initComponents("Edit Department");
+        loadDepartmentData(deptId);
+        setLocationRelativeTo(parent);
     }
     
     private void initComponents(String title) {
@@ -153,18 +145,10 @@ public class DepartmentEditor extends JFrame {
     
     private void loadDepartmentData(int id) {
         try {
-            String query = "SELECT * FROM DEPARTMENTS WHERE id = ?";
-            PreparedStatement pstmt = conn.prepareStatement(query);
-            pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                txtId.setText(String.valueOf(rs.getInt("id")));
-                txtSchId.setText(String.valueOf(rs.getInt("sch_id")));
-                txtCode.setText(rs.getString("dept_code"));
-                txtName.setText(rs.getString("dept_name"));
-                txtLocation.setText(rs.getString("dept_location"));
-                txtEmail.setText(rs.getString("dept_email"));
+            // Served from the department cache when the record was read recently
+            Department department = DatabaseConnector.getDepartmentById(id);
+            if (department != null) {
+                showDepartment(department);
             } else {
                 JOptionPane.showMessageDialog(this, "Department not found!",
                         "Error", JOptionPane.ERROR_MESSAGE);
@@ -176,6 +160,23 @@ public class DepartmentEditor extends JFrame {
         }
     }
     
+    /**
+     * Whether the edit form holds a department read from the database, so it can be shown
+     */
+    boolean isLoaded() {
+        return loadedVersion > 0;
+    }
+    
+    private void showDepartment(Department department) {
+        txtId.setText(String.valueOf(department.getId()));
+        txtSchId.setText(String.valueOf(department.getSchId()));
+        txtCode.setText(String.valueOf(department.getDeptCode()));
+        txtName.setText(department.getName());
+        txtLocation.setText(department.getLocation());
+        txtEmail.setText(department.getEmail());
+        loadedVersion = department.getVersion();
+    }
+    
     private void saveDepartment() {
         // Validate inputs
         if (txtId.getText().trim().isEmpty() || txtSchId.getText().trim().isEmpty() ||
@@ -188,99 +189,170 @@ public class DepartmentEditor extends JFrame {
         try {
             int id = Integer.parseInt(txtId.getText().trim());
             int schId = Integer.parseInt(txtSchId.getText().trim());
-            String code = txtCode.getText().trim();
+            int code = Integer.parseInt(txtCode.getText().trim());
             String name = txtName.getText().trim();
             String location = txtLocation.getText().trim();
             String email = txtEmail.getText().trim();
             
-            // Check if ID exists (for new departments)
-            if (!isEditMode) {
-                String checkQuery = "SELECT id FROM DEPARTMENTS WHERE id = ?";
-                PreparedStatement checkStmt = conn.prepareStatement(checkQuery);
-                checkStmt.setInt(1, id);
-                ResultSet rs = checkStmt.executeQuery();
-                
-                if (rs.next()) {
-                    JOptionPane.showMessageDialog(this, "Department ID already exists!",
-                            "Duplicate ID", JOptionPane.ERROR_MESSAGE);
-                    return;
-                }
-            }
-            
-            // Prepare SQL statement
-            String query;
-            PreparedStatement pstmt;
-            
-            if (isEditMode) {
-                query = "UPDATE DEPARTMENTS SET sch_id=?, dept_code=?, dept_name=?, dept_location=?, dept_email=? WHERE id=?";
-                pstmt = conn.prepareStatement(query);
-                pstmt.setInt(1, schId);
-                pstmt.setString(2, code);
-                pstmt.setString(3, name);
-                pstmt.setString(4, location);
-                pstmt.setString(5, email);
-                pstmt.setInt(6, id);
-            } else {
-                query = "INSERT INTO DEPARTMENTS (id, sch_id, dept_code, dept_name, dept_location, dept_email) VALUES (?, ?, ?, ?, ?, ?)";
-                pstmt = conn.prepareStatement(query);
-                pstmt.setInt(1, id);
-                pstmt.setInt(2, schId);
-                pstmt.setString(3, code);
-                pstmt.setString(4, name);
-                pstmt.setString(5, location);
-                pstmt.setString(6, email);
-            }
-            
-            int result = pstmt.executeUpdate();
+            // A taken ID or a row changed since it was loaded comes back as a conflict
+            submitSave(new Department(id, schId, code, name, location, email, isEditMode ? loadedVersion : 0));
             
-            if (result > 0) {
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "ID, School ID and Code must be numbers!",
+                    "Input Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+    
+    // Queue the write and report back to this form once it is committed
+    private void submitSave(Department department) {
+        DepartmentWriteQueue queue = DatabaseConnector.getWriteQueue();
+        CompletableFuture<Department> saved = isEditMode ? queue.update(department) : queue.insert(department);
+        setButtonsEnabled(false);
+        saved.whenCompleteAsync((result, error) -> {
+            setButtonsEnabled(true);
+            DepartmentConflictException conflict = conflictOf(error);
+            if (conflict != null && !isEditMode) {
+                JOptionPane.showMessageDialog(this, "Department ID already exists!",
+                        "Duplicate ID", JOptionPane.ERROR_MESSAGE);
+            } else if (conflict != null) {
+                resolveConflict(department, conflict.getCurrent());
+            } else if (error != null) {
+                showWriteError(error);
+            } else if (result != null) {
                 JOptionPane.showMessageDialog(this, 
                     isEditMode ? "Department updated successfully!" : "Department added successfully!",
                     "Success", JOptionPane.INFORMATION_MESSAGE);
-                parentView.loadDepartmentData(); // Refresh the parent view
+                // Apply the change to the parent view
+                if (isEditMode) {
+                    parentView.departmentUpdated(result);
+                } else {
+                    parentView.departmentInserted(result);
+                }
                 dispose(); // Close this form
+            } else if (isEditMode) {
+                JOptionPane.showMessageDialog(this, "This department was deleted by someone else.",
+                        "Department Deleted", JOptionPane.WARNING_MESSAGE);
+                parentView.departmentDeleted(department.getId());
+                dispose();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to save department!",
                         "Error", JOptionPane.ERROR_MESSAGE);
             }
-            
-        } catch (NumberFormatException ex) {
-            JOptionPane.showMessageDialog(this, "ID and School ID must be numbers!",
-                    "Input Error", JOptionPane.ERROR_MESSAGE);
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(),
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
+        }, SwingUtilities::invokeLater);
+    }
+    
+    /**
+     * Someone else saved the department after this form loaded it: show both versions side by side
+     * and let the user keep their values, take the stored ones, or go on editing
+     */
+    private void resolveConflict(Department mine, Department current) {
+        int choice = askConflictResolution(this, mine, current);
+        parentView.departmentUpdated(current);
+        if (choice == KEEP_MINE) {
+            // Overwrite the saved values, but only if nobody has changed them again meanwhile
+            submitSave(mine.withVersion(current.getVersion()));
+        } else if (choice == USE_SAVED) {
+            showDepartment(current);
         }
     }
     
+    /**
+     * Show the user's values next to the stored ones, differences in bold, and ask which to keep
+     * @param parent Window the dialog belongs to
+     * @param mine Values the user tried to save
+     * @param current Department as it is stored now
+     * @return KEEP_MINE, USE_SAVED, or anything else to go on editing
+     */
+    static int askConflictResolution(Component parent, Department mine, Department current) {
+        String[] fields = { "School ID", "Dept Code", "Dept Name", "Location", "Email" };
+        String[] yours = { String.valueOf(mine.getSchId()), String.valueOf(mine.getDeptCode()),
+            mine.getName(), mine.getLocation(), mine.getEmail() };
+        String[] theirs = { String.valueOf(current.getSchId()), String.valueOf(current.getDeptCode()),
+            current.getName(), current.getLocation(), current.getEmail() };
+        StringBuilder message = new StringBuilder("<html>This department was changed by someone else "
+            + "after you opened it.<br>Differences are in bold.<br><br>"
+            + "<table><tr><th></th><th align=left>Yours</th><th align=left>Saved</th></tr>");
+        for (int i = 0; i < fields.length; i++) {
+            boolean differs = !nullToEmpty(yours[i]).equals(nullToEmpty(theirs[i]));
+            message.append("<tr><td>").append(fields[i]).append("</td>")
+                .append(cell(yours[i], differs)).append(cell(theirs[i], differs)).append("</tr>");
+        }
+        message.append("</table></html>");
+        
+        String[] options = { "Keep Mine", "Use Saved", "Cancel" };
+        return JOptionPane.showOptionDialog(parent, message.toString(), "Edit Conflict",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[KEEP_MINE]);
+    }
+    
+    private static String cell(String value, boolean bold) {
+        String text = escapeHtml(nullToEmpty(value));
+        return "<td>" + (bold ? "<b>" + text + "</b>" : text) + "</td>";
+    }
+    
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+    
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+    
     private void deleteDepartment() {
         int confirm = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to delete this department?",
                 "Confirm Delete", JOptionPane.YES_NO_OPTION);
         
         if (confirm == JOptionPane.YES_OPTION) {
-            try {
-                int id = Integer.parseInt(txtId.getText().trim());
-                
-                String query = "DELETE FROM DEPARTMENTS WHERE id = ?";
-                PreparedStatement pstmt = conn.prepareStatement(query);
-                pstmt.setInt(1, id);
-                
-                int result = pstmt.executeUpdate();
-                
-                if (result > 0) {
-                    JOptionPane.showMessageDialog(this, "Department deleted successfully!",
-                            "Success", JOptionPane.INFORMATION_MESSAGE);
-                    parentView.loadDepartments(); // Refresh the parent view
-                    dispose(); // Close this form
+            submitDelete(Integer.parseInt(txtId.getText().trim()), loadedVersion);
+        }
+    }
+    
+    private void submitDelete(int id, long expectedVersion) {
+        setButtonsEnabled(false);
+        DatabaseConnector.getWriteQueue().delete(id, expectedVersion).whenCompleteAsync((result, error) -> {
+            setButtonsEnabled(true);
+            DepartmentConflictException conflict = conflictOf(error);
+            if (conflict != null) {
+                Department current = conflict.getCurrent();
+                parentView.departmentUpdated(current);
+                int again = JOptionPane.showConfirmDialog(this,
+                        "This department was changed by someone else after you opened it.\n"
+                            + "Delete it anyway?",
+                        "Edit Conflict", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                if (again == JOptionPane.YES_OPTION) {
+                    submitDelete(id, current.getVersion());
                 } else {
-                    JOptionPane.showMessageDialog(this, "Failed to delete department!",
-                            "Error", JOptionPane.ERROR_MESSAGE);
+                    showDepartment(current);
                 }
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, "Database error: " + ex.getMessage(),
-                        "Database Error", JOptionPane.ERROR_MESSAGE);
+            } else if (error != null) {
+                showWriteError(error);
+            } else if (result > 0) {
+                JOptionPane.showMessageDialog(this, "Department deleted successfully!",
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                parentView.departmentDeleted(id); // Remove the row from the parent view
+                dispose(); // Close this form
+            } else {
+                JOptionPane.showMessageDialog(this, "Failed to delete department!",
+                        "Error", JOptionPane.ERROR_MESSAGE);
             }
-        }
+        }, SwingUtilities::invokeLater);
+    }
+    
+    // Prevent a second click while a queued write is pending
+    private void setButtonsEnabled(boolean enabled) {
+        btnSave.setEnabled(enabled);
+        btnDelete.setEnabled(enabled);
+        btnCancel.setEnabled(enabled);
+    }
+    
+    private static DepartmentConflictException conflictOf(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof DepartmentConflictException ? (DepartmentConflictException) cause : null;
+    }
+    
+    private void showWriteError(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        JOptionPane.showMessageDialog(this, "Database error: " + cause.getMessage(),
+                "Database Error", JOptionPane.ERROR_MESSAGE);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Streams departments from the database straight to a file.
+ * <p>
+ * Rows are encoded one at a time into a fixed-size buffer that is flushed to a
+ * {@link FileChannel} whenever it fills, so memory use does not depend on the table size.
+ * <p>
+ * Two formats are supported:
+ * <ul>
+ * <li>CSV with a header row: {@code id,sch_id,dept_code,dept_name,dept_location,dept_email}</li>
+ * <li>Binary: the magic bytes {@code DEPT} and a version byte (1), then per row a marker byte 1,
+ *     the three int columns as big-endian 32-bit values and the three text columns, each as an
+ *     unsigned varint (0 for NULL, otherwise UTF-8 byte length + 1) followed by the UTF-8 bytes.
+ *     The file ends with a marker byte 0 and the row count as a big-endian 64-bit value.</li>
+ * </ul>
+ */
+public class DepartmentExporter {
+    /**
+     * Output format
+     */
+    public enum Format {
+        CSV, BINARY;
+
+        /**
+         * Pick a format from a file name: ".csv" is CSV, anything else is binary
+         * @param file Target file
+         * @return Format for that file
+         */
+        public static Format forFile(Path file) {
+            return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : BINARY;
+        }
+    }
+
+    /**
+     * Receives progress while an export runs
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param rowsWritten Rows written so far
+         * @param totalRows Expected row count, or -1 if unknown
+         */
+        void progress(long rowsWritten, long totalRows);
+    }
+
+    private static final byte[] MAGIC = {'D', 'E', 'P', 'T'};
+    private static final byte VERSION = 1;
+    private static final byte ROW_MARKER = 1;
+    private static final byte END_MARKER = 0;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder line = new StringBuilder(256);
+    private FileChannel channel;
+    private volatile boolean cancelled;
+
+    /**
+     * Stop a running export; the partial file is deleted
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Export departments to a file
+     * @param file Target file, replaced if it exists
+     * @param format Output format
+     * @param query Departments to export and their order; {@link DepartmentQuery#ALL} for the whole table
+     * @param listener Progress callback, called from the exporting thread (may be null)
+     * @return Number of rows written, or -1 if the export was cancelled
+     * @throws IOException if the file cannot be written
+     * @throws SQLException if the query fails
+     */
+    public long export(Path file, Format format, DepartmentQuery query, ProgressListener listener)
+            throws IOException, SQLException {
+        // Counting full-text matches costs as much as finding them
+        long total = query.getSearchText() == null ? DatabaseConnector.countDepartments(query) : -1;
+        long[] written = {0};
+
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel = out;
+            buffer.clear();
+            if (format == Format.CSV) {
+                writeText("id,sch_id,dept_code,dept_name,dept_location,dept_email\n");
+            } else {
+                buffer.put(MAGIC).put(VERSION);
+            }
+
+            DepartmentVisitor visitor = department -> {
+                if (cancelled) {
+                    return false;
+                }
+                try {
+                    if (format == Format.CSV) {
+                        writeCsvRow(department);
+                    } else {
+                        writeBinaryRow(department);
+                    }
+                } catch (IOException e) {
+                    throw new SQLException("Error writing export file: " + e.getMessage(), e);
+                }
+                if (++written[0] % PROGRESS_INTERVAL == 0 && listener != null) {
+                    listener.progress(written[0], total);
+                }
+                return true;
+            };
+            DatabaseConnector.forEachDepartment(query, visitor);
+
+            if (!cancelled) {
+                if (format == Format.BINARY) {
+                    ensureRoom(9);
+                    buffer.put(END_MARKER).putLong(written[0]);
+                }
+                flush();
+            }
+        } finally {
+            channel = null;
+        }
+
+        if (cancelled) {
+            Files.deleteIfExists(file);
+            return -1;
+        }
+        if (listener != null) {
+            listener.progress(written[0], total);
+        }
+        return written[0];
+    }
+
+    private void writeCsvRow(Department department) throws IOException {
+        line.setLength(0);
+        line.append(department.getId()).append(',')
+            .append(department.getSchId()).append(',')
+            .append(department.getDeptCode()).append(',');
+        CsvUtil.appendField(line, department.getName());
+        line.append(',');
+        CsvUtil.appendField(line, department.getLocation());
+        line.append(',');
+        CsvUtil.appendField(line, department.getEmail());
+        line.append('\n');
+        writeText(line);
+    }
+
+    private void writeBinaryRow(Department department) throws IOException {
+        ensureRoom(13);
+        buffer.put(ROW_MARKER)
+            .putInt(department.getId())
+            .putInt(department.getSchId())
+            .putInt(department.getDeptCode());
+        writeBinaryString(department.getName());
+        writeBinaryString(department.getLocation());
+        writeBinaryString(department.getEmail());
+    }
+
+    private void writeBinaryString(String value) throws IOException {
+        if (value == null) {
+            ensureRoom(1);
+            buffer.put((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureRoom(5);
+        int length = bytes.length + 1;
+        while ((length & ~0x7F) != 0) {
+            buffer.put((byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte) length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int n = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, n);
+            offset += n;
+        }
+    }
+
+    /**
+     * Encode text as UTF-8 into the buffer, flushing whenever it fills
+     */
+    private void writeText(CharSequence text) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isOverflow()) {
+                flush();
+            } else if (result.isError()) {
+                result.throwException();
+            } else {
+                break;
+            }
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -2,23 +2,44 @@ import javax.swing.*;
 import javax.swing.table.*;
 import java.awt.*;
 //import java.awt.event.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.beans.PropertyChangeEvent;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 /**
- * Window for displaying list of departments with search functionality
+ * Window for displaying list of departments with search, filter and sort functionality.
+ * Filters and sort order are applied by the database, not to rows already in memory.
  */
 public class DepartmentListWindow extends JFrame {
     private JTable departmentTable;
-    private DefaultTableModel tableModel;
+    private DepartmentTableModel tableModel;
     private JTextField searchField;
+    private JComboBox<String> searchModeBox;
+    private JTextField schIdFilterField;
+    private JTextField codeFromFilterField;
+    private JTextField codeToFilterField;
+    private JTextField locationFilterField;
+    private JTextField emailDomainFilterField;
+    private JProgressBar loadProgressBar;
+    private JLabel statusLabel;
+    private JButton cancelButton;
+    private Runnable cancelAction;
+    private String loadDescription = "departments";
     private int highlightedId = -1; // Track the highlighted ID
+    private int highlightedRow = -1; // Model row of highlightedId, or -1 if not shown
+    private DepartmentChangeMonitor.Listener changeListener; // Applies changes made by other connections
     
     /**
      * Constructor for department list window
      */
     public DepartmentListWindow() {
         setTitle("Department Management System - Departments");
-        setSize(800, 500);
+        setSize(900, 550);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         
@@ -32,80 +53,140 @@ public class DepartmentListWindow extends JFrame {
         searchField = new JTextField(20);
         searchPanel.add(searchField);
         
+        searchModeBox = new JComboBox<>(new String[] {"By ID", "By Text"});
+        searchModeBox.setToolTipText("By Text matches words at the start of name, location or email");
+        searchPanel.add(searchModeBox);
+        
         JButton searchButton = new JButton("Search");
         searchPanel.add(searchButton);
         
         JButton refreshButton = new JButton("Refresh");
         searchPanel.add(refreshButton);
         
-        mainPanel.add(searchPanel, BorderLayout.NORTH);
+        // Filter panel below the search row
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("School ID:"));
+        schIdFilterField = new JTextField(5);
+        filterPanel.add(schIdFilterField);
+        filterPanel.add(new JLabel("Code:"));
+        codeFromFilterField = new JTextField(4);
+        filterPanel.add(codeFromFilterField);
+        filterPanel.add(new JLabel("to"));
+        codeToFilterField = new JTextField(4);
+        filterPanel.add(codeToFilterField);
+        filterPanel.add(new JLabel("Location:"));
+        locationFilterField = new JTextField(8);
+        locationFilterField.setToolTipText("Locations containing this text");
+        filterPanel.add(locationFilterField);
+        filterPanel.add(new JLabel("Email domain:"));
+        emailDomainFilterField = new JTextField(10);
+        emailDomainFilterField.setToolTipText("e.g. school.edu");
+        filterPanel.add(emailDomainFilterField);
+        
+        JButton applyFilterButton = new JButton("Filter");
+        filterPanel.add(applyFilterButton);
+        JButton clearFilterButton = new JButton("Clear");
+        filterPanel.add(clearFilterButton);
+        
+        JPanel topPanel = new JPanel(new GridLayout(2, 1));
+        topPanel.add(searchPanel);
+        topPanel.add(filterPanel);
+        mainPanel.add(topPanel, BorderLayout.NORTH);
         
         // Table for departments
-        String[] columnNames = {"ID", "School ID", "Dept Code", "Department Name", "Location", "Email"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        // Rows are paged in from the database as they scroll into view
+        tableModel = new DepartmentTableModel();
+        
+        departmentTable = new JTable(tableModel) {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table non-editable
+            public Component prepareRenderer(TableCellRenderer renderer, int row, int column) {
+                if (!(renderer instanceof IntRenderer)) {
+                    return super.prepareRenderer(renderer, row, column);
+                }
+                // Same as JTable, minus the boxed getValueAt; the renderer reads the int itself
+                boolean isSelected = !isPaintingForPrint() && isCellSelected(row, column);
+                boolean hasFocus = !isPaintingForPrint() && isFocusOwner()
+                    && getSelectionModel().getLeadSelectionIndex() == row
+                    && getColumnModel().getSelectionModel().getLeadSelectionIndex() == column;
+                return renderer.getTableCellRendererComponent(this, null, isSelected, hasFocus, row, column);
             }
         };
-        
-        departmentTable = new JTable(tableModel);
         departmentTable.getTableHeader().setReorderingAllowed(false);
+        departmentTable.getTableHeader().setToolTipText("Click a column to sort by it; click again to reverse");
+        departmentTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = departmentTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    sortByColumn(departmentTable.convertColumnIndexToModel(column));
+                }
+            }
+        });
         departmentTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         departmentTable.setRowHeight(25);
-        
-        // Custom cell renderer for highlighting - UPDATED to make text visible on yellow background
-        departmentTable.setDefaultRenderer(Object.class, new TableCellRenderer() {
-            private final DefaultTableCellRenderer DEFAULT_RENDERER = new DefaultTableCellRenderer();
-            
+        departmentTable.setToolTipText("Double-click a department to edit or delete it");
+        departmentTable.addMouseListener(new MouseAdapter() {
             @Override
-            public Component getTableCellRendererComponent(JTable table, Object value,
-                    boolean isSelected, boolean hasFocus, int row, int column) {
-                Component c = DEFAULT_RENDERER.getTableCellRendererComponent(
-                        table, value, isSelected, hasFocus, row, column);
-                
-                if (c instanceof JLabel) {
-                    JLabel label = (JLabel) c;
-                    label.setHorizontalAlignment(JLabel.CENTER);
-                    
-                    // If cell is part of the search result
-                    if (table.getValueAt(row, 0) != null && 
-                        highlightedId != -1 && 
-                        highlightedId == Integer.parseInt(table.getValueAt(row, 0).toString())) {
-                        label.setBackground(Color.YELLOW);
-                        label.setForeground(Color.BLACK); // Ensure text is visible on yellow background
-                        label.setOpaque(true);
-                    } else if (isSelected) {
-                        label.setBackground(table.getSelectionBackground());
-                        label.setForeground(table.getSelectionForeground());
-                        label.setOpaque(true);
-                    } else {
-                        label.setBackground(table.getBackground());
-                        label.setForeground(table.getForeground());
-                        label.setOpaque(false);
-                    }
+            public void mouseClicked(MouseEvent e) {
+                int row = departmentTable.rowAtPoint(e.getPoint());
+                if (e.getClickCount() == 2 && row >= 0) {
+                    editDepartment(departmentTable.convertRowIndexToModel(row));
                 }
-                return c;
+            }
+        });
+        
+        // Custom cell renderer for highlighting - UPDATED to make text visible on yellow background
+        departmentTable.setDefaultRenderer(Object.class, new HighlightRenderer());
+        departmentTable.setDefaultRenderer(Integer.class, new IntRenderer());
+        
+        // Keep the highlighted row in step with the model as rows load, move or disappear
+        tableModel.addTableModelListener(e -> {
+            if (highlightedId != -1) {
+                highlightedRow = tableModel.findRow(highlightedId);
             }
         });
         
         JScrollPane scrollPane = new JScrollPane(departmentTable);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
         
-        // Button panel at the bottom
+        // Bottom panel: load progress on the left, buttons on the right
+        JPanel bottomPanel = new JPanel(new BorderLayout(10, 0));
+        
+        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        loadProgressBar = new JProgressBar(0, 100);
+        loadProgressBar.setStringPainted(true);
+        loadProgressBar.setVisible(false);
+        statusPanel.add(loadProgressBar);
+        statusLabel = new JLabel(" ");
+        statusPanel.add(statusLabel);
+        cancelButton = new JButton("Cancel");
+        cancelButton.setVisible(false);
+        cancelButton.addActionListener(e -> {
+            if (cancelAction != null) {
+                cancelAction.run();
+            }
+        });
+        statusPanel.add(cancelButton);
+        bottomPanel.add(statusPanel, BorderLayout.WEST);
+        
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         JButton insertButton = new JButton("Manage Departments");
         buttonPanel.add(insertButton);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
         
-        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+        mainPanel.add(bottomPanel, BorderLayout.SOUTH);
         
         // Load initial data
+        tableModel.addLoadListener(this::loadProgressChanged);
         loadDepartmentData();
+        watchForChanges();
         
         // Add action listeners
         searchButton.addActionListener(e -> {
             String searchText = searchField.getText().trim();
-            if (!searchText.isEmpty()) {
+            if (!searchText.isEmpty() && searchModeBox.getSelectedIndex() == 1) {
+                searchDepartmentsByText(searchText);
+            } else if (!searchText.isEmpty()) {
                 try {
                     int id = Integer.parseInt(searchText);
                     searchDepartmentById(id);
@@ -118,111 +199,551 @@ public class DepartmentListWindow extends JFrame {
         });
         
         refreshButton.addActionListener(e -> {
+            setHighlightedId(-1); // Clear highlighting
             loadDepartmentData();
             searchField.setText("");
-            highlightedId = -1; // Clear highlighting
-            departmentTable.repaint();
+        });
+        
+        applyFilterButton.addActionListener(e -> applyFilter());
+        for (JTextField field : new JTextField[] {schIdFilterField, codeFromFilterField, codeToFilterField,
+                locationFilterField, emailDomainFilterField}) {
+            field.addActionListener(e -> applyFilter());
+        }
+        clearFilterButton.addActionListener(e -> {
+            clearFilterFields();
+            applyFilter();
         });
         
         insertButton.addActionListener(e -> {
             new DepartmentManageWindow(this);
         });
         
+        // File menu for bulk operations
+        JMenuBar menuBar = new JMenuBar();
+        JMenu fileMenu = new JMenu("File");
+        JMenuItem importItem = new JMenuItem("Import CSV...");
+        importItem.addActionListener(e -> importCsv());
+        fileMenu.add(importItem);
+        JMenuItem exportItem = new JMenuItem("Export...");
+        exportItem.addActionListener(e -> exportDepartments());
+        fileMenu.add(exportItem);
+        menuBar.add(fileMenu);
+        JMenu toolsMenu = new JMenu("Tools");
+        JMenuItem diagnosticsItem = new JMenuItem("Diagnostics...");
+        diagnosticsItem.addActionListener(e -> new DiagnosticsWindow(this));
+        toolsMenu.add(diagnosticsItem);
+        menuBar.add(toolsMenu);
+        setJMenuBar(menuBar);
+        
         add(mainPanel);
         setVisible(true);
     }
     
     /**
-     * Load all departments from database
+     * Load all departments from database, clearing any filter and sort order.
+     * Rows are streamed in on a background thread and appear as they arrive;
+     * calling this again cancels a load that is still running.
      */
     public void loadDepartmentData() {
-        // Clear existing data
-        tableModel.setRowCount(0);
-        
-        try (ResultSet rs = DatabaseConnector.getAllDepartments()) {
-            while (rs.next()) {
-                Object[] rowData = {
-                    rs.getInt("id"),
-                    rs.getInt("sch_id"),
-                    rs.getInt("dept_code"),
-                    rs.getString("dept_name"),
-                    rs.getString("dept_location"),
-                    rs.getString("dept_email")
-                };
-                tableModel.addRow(rowData);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        clearFilterFields();
+        showQuery(DepartmentQuery.ALL);
+    }
+    
+    /**
+     * Replace the list with full-text matches on name, location and email within the current filter.
+     * Results stream into the table as they are found, best match first unless a column is sorted.
+     * @param text Words to search for; each is matched as a prefix
+     */
+    private void searchDepartmentsByText(String text) {
+        setHighlightedId(-1);
+        showQuery(tableModel.getQuery().toBuilder().searchText(text).build());
+    }
+    
+    /**
+     * Reload the list with the values in the filter fields, keeping the sort order and text search
+     */
+    private void applyFilter() {
+        DepartmentQuery query;
+        try {
+            query = tableModel.getQuery().toBuilder()
+                .schId(parseFilterNumber(schIdFilterField, "School ID"))
+                .codeRange(parseFilterNumber(codeFromFilterField, "Department code"),
+                    parseFilterNumber(codeToFilterField, "Department code"))
+                .location(locationFilterField.getText())
+                .emailDomain(emailDomainFilterField.getText())
+                .build();
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Invalid Filter", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        setHighlightedId(-1);
+        showQuery(query);
+    }
+    
+    /**
+     * Read an optional whole number from a filter field
+     * @return The number, or null if the field is blank
+     * @throws IllegalArgumentException if the field holds something else
+     */
+    private static Integer parseFilterNumber(JTextField field, String label) {
+        String text = field.getText().trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(label + " filter must be a whole number: " + text);
+        }
+    }
+    
+    private void clearFilterFields() {
+        schIdFilterField.setText("");
+        codeFromFilterField.setText("");
+        codeToFilterField.setText("");
+        locationFilterField.setText("");
+        emailDomainFilterField.setText("");
+    }
+    
+    /**
+     * Sort the list by a column, reversing the direction if it is already sorted by it
+     * @param column Model column index
+     */
+    private void sortByColumn(int column) {
+        DepartmentQuery query = tableModel.getQuery();
+        DepartmentQuery.SortColumn sortColumn = DepartmentQuery.SortColumn.values()[column];
+        boolean ascending = query.getSortColumn() != sortColumn || !query.isAscending();
+        showQuery(query.toBuilder().sortBy(sortColumn, ascending).build());
+    }
+    
+    /**
+     * Start loading the rows of a query and update the headers and status area for it
+     * @param query Filter and sort order to show
+     */
+    private void showQuery(DepartmentQuery query) {
+        tableModel.load(query);
+        // Header values are copied from the model when the columns are created, so refresh the sort arrows
+        TableColumnModel columns = departmentTable.getColumnModel();
+        for (int i = 0; i < columns.getColumnCount(); i++) {
+            TableColumn column = columns.getColumn(i);
+            column.setHeaderValue(tableModel.getColumnName(column.getModelIndex()));
+        }
+        departmentTable.getTableHeader().repaint();
+        showLoadStarted(query.getSearchText() == null,
+            query.isFiltered() ? "departments (" + query + ")" : "departments");
+    }
+    
+    /**
+     * Show the progress indicator for a load that has just started
+     * @param knownTotal true if the load reports percentage progress
+     * @param description What the loaded rows are, for the status text
+     */
+    private void showLoadStarted(boolean knownTotal, String description) {
+        loadDescription = description;
+        loadProgressBar.setValue(0);
+        loadProgressBar.setIndeterminate(!knownTotal);
+        loadProgressBar.setVisible(true);
+        statusLabel.setText("Loading " + (knownTotal ? description : "results") + "...");
+    }
+    
+    /**
+     * Follow progress and completion of the model's background loads
+     * @param evt Property change from a load
+     */
+    @SuppressWarnings("unchecked")
+    private void loadProgressChanged(PropertyChangeEvent evt) {
+        if ("progress".equals(evt.getPropertyName())) {
+            loadProgressBar.setValue((Integer) evt.getNewValue());
+        } else if ("state".equals(evt.getPropertyName()) && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+            loadFinished((SwingWorker<Integer, int[]>) evt.getSource());
+        }
+    }
+    
+    /**
+     * Update the status area once a background load ends
+     * @param load The load that finished
+     */
+    private void loadFinished(SwingWorker<Integer, int[]> load) {
+        if (load.isCancelled()) {
+            return; // A newer load owns the progress indicator
+        }
+        loadProgressBar.setVisible(false);
+        try {
+            statusLabel.setText(load.get() + " " + loadDescription);
+        } catch (InterruptedException | ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            cause.printStackTrace();
+            statusLabel.setText("Load failed");
             JOptionPane.showMessageDialog(this, 
-                "Error loading departments: " + e.getMessage(), 
+                "Error loading departments: " + cause.getMessage(), 
                 "Database Error", JOptionPane.ERROR_MESSAGE);
         }
     }
     
+    /**
+     * Ask for a CSV file and import it in the background, then reload the list
+     */
+    private void importCsv() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Departments from CSV");
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path csv = chooser.getSelectedFile().toPath();
+        Path errorFile = DepartmentCsvImporter.defaultErrorFile(csv);
+        DepartmentCsvImporter importer = new DepartmentCsvImporter();
+        
+        loadProgressBar.setIndeterminate(true);
+        loadProgressBar.setVisible(true);
+        statusLabel.setText("Importing " + csv.getFileName() + "...");
+        
+        new SwingWorker<DepartmentCsvImporter.Result, String>() {
+            @Override
+            protected DepartmentCsvImporter.Result doInBackground() throws Exception {
+                return importer.importFile(csv, errorFile, (rowsRead, imported, rejected) ->
+                    publish(rowsRead + " rows read, " + imported + " imported, " + rejected + " rejected"));
+            }
+            
+            @Override
+            protected void process(List<String> updates) {
+                statusLabel.setText("Importing: " + updates.get(updates.size() - 1));
+            }
+            
+            @Override
+            protected void done() {
+                loadProgressBar.setVisible(false);
+                try {
+                    DepartmentCsvImporter.Result result = get();
+                    JOptionPane.showMessageDialog(DepartmentListWindow.this, 
+                        "Import finished: " + result, 
+                        "Import", result.getRejected() > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(DepartmentListWindow.this, 
+                        "Error importing departments: " + cause.getMessage(), 
+                        "Import Error", JOptionPane.ERROR_MESSAGE);
+                }
+                loadDepartmentData();
+            }
+        }.execute();
+    }
+    
+    /**
+     * Ask for a target file and stream the table or the current search or filter result to it in the background.
+     * Files ending in .csv are written as CSV, anything else in the compact binary format.
+     */
+    private void exportDepartments() {
+        DepartmentQuery query = tableModel.getQuery();
+        if (query.isFiltered()) {
+            int choice = JOptionPane.showOptionDialog(this, 
+                "Export the current search or filter results or the whole table?", 
+                "Export", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, 
+                new String[] {"Current Results", "Whole Table"}, "Current Results");
+            if (choice == JOptionPane.CLOSED_OPTION) {
+                return;
+            }
+            if (choice == 1) {
+                query = DepartmentQuery.ALL;
+            }
+        }
+        
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Export Departments (.csv for CSV, other names for binary)");
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        DepartmentExporter.Format format = DepartmentExporter.Format.forFile(file);
+        DepartmentExporter exporter = new DepartmentExporter();
+        DepartmentQuery exportQuery = query;
+        
+        loadProgressBar.setValue(0);
+        loadProgressBar.setIndeterminate(exportQuery.getSearchText() != null);
+        loadProgressBar.setVisible(true);
+        statusLabel.setText("Exporting to " + file.getFileName() + "...");
+        cancelAction = exporter::cancel;
+        cancelButton.setVisible(true);
+        
+        new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return exporter.export(file, format, exportQuery, (rowsWritten, totalRows) -> {
+                    publish(rowsWritten);
+                    if (totalRows > 0) {
+                        setProgress((int) Math.min(100, rowsWritten * 100 / totalRows));
+                    }
+                });
+            }
+            
+            @Override
+            protected void process(List<Long> updates) {
+                loadProgressBar.setValue(getProgress());
+                statusLabel.setText("Exporting: " + updates.get(updates.size() - 1) + " rows written");
+            }
+            
+            @Override
+            protected void done() {
+                cancelAction = null;
+                cancelButton.setVisible(false);
+                loadProgressBar.setVisible(false);
+                try {
+                    long rows = get();
+                    statusLabel.setText(rows < 0 ? "Export cancelled" : "Exported " + rows + " rows to " + file.getFileName());
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    statusLabel.setText("Export failed");
+                    JOptionPane.showMessageDialog(DepartmentListWindow.this, 
+                        "Error exporting departments: " + cause.getMessage(), 
+                        "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
+    /**
+     * Open the edit form for the department in a row. The form reads the row with its version,
+     * so a save or delete is refused if someone else changed the department in the meantime.
+     * @param row Model row index
+     */
+    private void editDepartment(int row) {
+        DepartmentEditor editor = new DepartmentEditor(this, tableModel.getIntAt(row, 0));
+        if (editor.isLoaded()) {
+            editor.setVisible(true);
+        }
+    }
+
+    /**
+     * Show a department inserted through one of the edit windows
+     * @param department The new department
+     */
+    public void departmentInserted(Department department) {
+        tableModel.departmentInserted(department);
+        updateRowCountStatus();
+    }
+    
+    /**
+     * Show the new values of a department updated through one of the edit windows
+     * @param department The updated department
+     */
+    public void departmentUpdated(Department department) {
+        tableModel.departmentUpdated(department);
+    }
+    
+    /**
+     * Remove a department deleted through one of the edit windows
+     * @param id ID of the deleted department
+     */
+    public void departmentDeleted(int id) {
+        tableModel.departmentDeleted(id);
+        updateRowCountStatus();
+    }
+    
+    /**
+     * Keep the list up to date with departments changed by other windows, processes and the HTTP service
+     */
+    private void watchForChanges() {
+        DepartmentChangeMonitor monitor = DatabaseConnector.getChangeMonitor();
+        if (monitor == null) {
+            return; // Disabled with dms.changes.pollMs=0
+        }
+        changeListener = new DepartmentChangeMonitor.Listener() {
+            @Override
+            public void departmentsChanged(List<DepartmentChangeMonitor.Change> changes) {
+                SwingUtilities.invokeLater(() -> {
+                    tableModel.applyChanges(changes);
+                    updateRowCountStatus();
+                });
+            }
+
+            @Override
+            public void departmentsReset() {
+                SwingUtilities.invokeLater(tableModel::refresh);
+            }
+        };
+        monitor.addListener(changeListener);
+    }
+    
+    @Override
+    public void dispose() {
+        DepartmentChangeMonitor monitor = changeListener != null ? DatabaseConnector.getChangeMonitor() : null;
+        if (monitor != null) {
+            monitor.removeListener(changeListener);
+        }
+        super.dispose();
+    }
+    
+    /**
+     * Show the current row count once the list has changed locally
+     */
+    private void updateRowCountStatus() {
+        if (!tableModel.isLoading()) {
+            statusLabel.setText(tableModel.getRowCount() + " " + loadDescription);
+        }
+    }
+    
     /**
      * Search department by ID
      * @param id The department ID to search for
      */
     private void searchDepartmentById(int id) {
-        boolean found = false;
-        highlightedId = id; // Set the ID to highlight
-        
-        // First try to find in the current table model
-        for (int i = 0; i < tableModel.getRowCount(); i++) {
-            if (tableModel.getValueAt(i, 0) != null && 
-                Integer.parseInt(tableModel.getValueAt(i, 0).toString()) == id) {
-                // Select the row
-                departmentTable.setRowSelectionInterval(i, i);
-                // Ensure the row is visible
-                departmentTable.scrollRectToVisible(departmentTable.getCellRect(i, 0, true));
-                found = true;
-                break;
-            }
-        }
-        
-        // If not found in the table, try to load from database
-        if (!found) {
-            try (ResultSet rs = DatabaseConnector.getDepartmentById(id)) {
-                if (rs.next()) {
-                    // Clear table and add the found department
-                    tableModel.setRowCount(0);
-                    Object[] rowData = {
-                        rs.getInt("id"),
-                        rs.getInt("sch_id"),
-                        rs.getInt("dept_code"),
-                        rs.getString("dept_name"),
-                        rs.getString("dept_location"),
-                        rs.getString("dept_email")
-                    };
-                    tableModel.addRow(rowData);
-                    departmentTable.setRowSelectionInterval(0, 0);
-                    found = true;
-                    
-                    // Show found message
+        // Constant-time lookup in the loaded rows
+        int row = tableModel.findRow(id);
+        if (row >= 0) {
+            setHighlightedId(id); // Highlight the result
+            // Select the row
+            departmentTable.setRowSelectionInterval(row, row);
+            // Ensure the row is visible
+            departmentTable.scrollRectToVisible(departmentTable.getCellRect(row, 0, true));
+            
+            JOptionPane.showMessageDialog(this, 
+                "Department with ID " + id + " found!", 
+                "Search Result", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        // Not in the list; it may exist but not have been streamed in yet, or be filtered out
+        if (tableModel.isLoading() || tableModel.getQuery().isFiltered()) {
+            try {
+                if (DatabaseConnector.getDepartmentById(id) != null) {
                     JOptionPane.showMessageDialog(this, 
-                        "Department with ID " + id + " found!", 
+                        tableModel.isLoading()
+                            ? "Department with ID " + id + " exists but has not been loaded yet. Try again when loading finishes."
+                            : "Department with ID " + id + " exists but is hidden by the current search or filter.", 
                         "Search Result", JOptionPane.INFORMATION_MESSAGE);
+                    setHighlightedId(-1);
+                    return;
                 }
             } catch (SQLException e) {
                 e.printStackTrace();
             }
         }
         
-        if (!found) {
-            JOptionPane.showMessageDialog(this, 
-                "Department with ID " + id + " not found.", 
-                "Search Result", JOptionPane.INFORMATION_MESSAGE);
-            highlightedId = -1; // Clear highlighting if not found
-        } else {
-            // Repaint to ensure highlighting
-            departmentTable.repaint();
+        JOptionPane.showMessageDialog(this, 
+            "Department with ID " + id + " not found.", 
+            "Search Result", JOptionPane.INFORMATION_MESSAGE);
+        setHighlightedId(-1); // Clear highlighting if not found
+    }
+    
+    /**
+     * Change the highlighted department, repainting only the rows whose highlight changed
+     * @param id Department ID to highlight, or -1 for none
+     */
+    private void setHighlightedId(int id) {
+        int oldRow = highlightedRow;
+        highlightedId = id;
+        highlightedRow = id != -1 ? tableModel.findRow(id) : -1;
+        if (oldRow != highlightedRow) {
+            repaintModelRow(oldRow);
+            repaintModelRow(highlightedRow);
+        }
+    }
+    
+    /**
+     * Repaint a single table row
+     * @param modelRow Row index in the model, or -1 to do nothing
+     */
+    private void repaintModelRow(int modelRow) {
+        if (modelRow < 0 || modelRow >= tableModel.getRowCount()) {
+            return;
+        }
+        int viewRow = departmentTable.convertRowIndexToView(modelRow);
+        if (viewRow >= 0) {
+            Rectangle rowBounds = departmentTable.getCellRect(viewRow, 0, true);
+            departmentTable.repaint(0, rowBounds.y, departmentTable.getWidth(), rowBounds.height);
+        }
+    }
+    
+    /**
+     * Cell renderer that centres text and paints the highlighted row yellow.
+     * The highlight test compares row indexes only, so painting does not read or parse cell values.
+     */
+    private class HighlightRenderer extends DefaultTableCellRenderer {
+        HighlightRenderer() {
+            setHorizontalAlignment(JLabel.CENTER);
+        }
+        
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value,
+                boolean isSelected, boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
             
-            // If found in the model, show dialog
-            if (departmentTable.getSelectedRow() != -1) {
-                JOptionPane.showMessageDialog(this, 
-                    "Department with ID " + id + " found!", 
-                    "Search Result", JOptionPane.INFORMATION_MESSAGE);
+            // If cell is part of the search result
+            if (highlightedRow != -1 && table.convertRowIndexToModel(row) == highlightedRow) {
+                setBackground(Color.YELLOW);
+                setForeground(Color.BLACK); // Ensure text is visible on yellow background
+                setOpaque(true);
+            } else if (isSelected) {
+                setBackground(table.getSelectionBackground());
+                setForeground(table.getSelectionForeground());
+                setOpaque(true);
+            } else {
+                setBackground(table.getBackground());
+                setForeground(table.getForeground());
+                setOpaque(false);
+            }
+            return this;
+        }
+    }
+    
+    /**
+     * Highlight renderer for the Integer columns that reads the value as a primitive from the
+     * model's column store and draws its digits from a reused buffer, so painting a cell
+     * neither boxes the value nor creates a String.
+     */
+    private class IntRenderer extends HighlightRenderer {
+        private final char[] digits = new char[11];
+        private final Insets insets = new Insets(0, 0, 0, 0);
+        private int start = digits.length; // digits[start..] hold the value; empty while its page loads
+        
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value,
+                boolean isSelected, boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, null, isSelected, hasFocus, row, column);
+            int modelRow = table.convertRowIndexToModel(row);
+            int modelColumn = table.convertColumnIndexToModel(column);
+            start = tableModel.hasValueAt(modelRow, modelColumn)
+                ? format(tableModel.getIntAt(modelRow, modelColumn)) : digits.length;
+            return this;
+        }
+        
+        /**
+         * Write a value's digits right-aligned into the buffer
+         * @return Index of the first character
+         */
+        private int format(int value) {
+            int pos = digits.length;
+            long n = Math.abs((long) value);
+            do {
+                digits[--pos] = (char) ('0' + n % 10);
+                n /= 10;
+            } while (n != 0);
+            if (value < 0) {
+                digits[--pos] = '-';
+            }
+            return pos;
+        }
+        
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (start == digits.length) {
+                return;
+            }
+            getInsets(insets);
+            FontMetrics metrics = g.getFontMetrics();
+            int width = getWidth() - insets.left - insets.right;
+            int height = getHeight() - insets.top - insets.bottom;
+            int x = insets.left + (width - metrics.charsWidth(digits, start, digits.length - start)) / 2;
+            int y = insets.top + (height - metrics.getHeight()) / 2 + metrics.getAscent();
+            // JLabel text follows the desktop antialiasing settings; match it
+            Object hints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+            if (hints instanceof Map) {
+                ((Graphics2D) g).addRenderingHints((Map<?, ?>) hints);
             }
+            g.setColor(getForeground());
+            g.drawChars(digits, start, digits.length - start, x, y);
         }
     }
 }
@@ -1,7 +1,11 @@
 import javax.swing.*;
 import java.awt.*;
 //import java.awt.event.*;
-import java.sql.*;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 /**
  * Window for managing departments (insert, update, delete)
@@ -9,6 +13,10 @@ import java.sql.*;
 public class DepartmentManageWindow extends JDialog {
     private JTextField idField, schIdField, deptCodeField, nameField, locationField, emailField;
     private DepartmentListWindow parentWindow;
+    private JButton insertButton, updateButton, deleteButton, clearButton;
+    // Department last read for the entered ID, with the version that updates and deletes are checked against
+    private int loadedId = -1;
+    private long loadedVersion;
     
     /**
      * Constructor for department management window
@@ -30,6 +38,17 @@ public class DepartmentManageWindow extends JDialog {
         formPanel.add(new JLabel("ID (for update/delete/specific insert):"));
         idField = new JTextField(10);
         formPanel.add(idField);
+        // Entering the ID of an existing department loads it into an empty form
+        idField.addActionListener(e -> loadEnteredDepartment());
+        idField.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                // Leaving the field for a button: the button's action reads the department itself
+                if (!(e.getOppositeComponent() instanceof JButton)) {
+                    loadEnteredDepartment();
+                }
+            }
+        });
         
         formPanel.add(new JLabel("School ID:"));
         schIdField = new JTextField(10);
@@ -56,10 +75,10 @@ public class DepartmentManageWindow extends JDialog {
         // Button panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
         
-        JButton insertButton = new JButton("Insert");
-        JButton updateButton = new JButton("Update");
-        JButton deleteButton = new JButton("Delete");
-        JButton clearButton = new JButton("Clear");
+        insertButton = new JButton("Insert");
+        updateButton = new JButton("Update");
+        deleteButton = new JButton("Delete");
+        clearButton = new JButton("Clear");
         
         buttonPanel.add(insertButton);
         buttonPanel.add(updateButton);
@@ -105,39 +124,20 @@ public class DepartmentManageWindow extends JDialog {
      * @return true if validation passes, false otherwise
      */
     private boolean validateInputFields(boolean requireId) {
-        // For update and delete, ID is required
-        if (requireId && idField.getText().trim().isEmpty()) {
-            JOptionPane.showMessageDialog(this, 
-                "Please enter the ID of the department", 
-                "Missing Information", JOptionPane.WARNING_MESSAGE);
-            return false;
-        }
-        
-        // Check required fields for insert and update
-        if (schIdField.getText().trim().isEmpty() || 
-            deptCodeField.getText().trim().isEmpty() || 
-            nameField.getText().trim().isEmpty()) {
-            
+        String error = DepartmentValidator.checkRequired(idField.getText(), schIdField.getText(),
+            deptCodeField.getText(), nameField.getText(), requireId);
+        if (error != null) {
             JOptionPane.showMessageDialog(this, 
-                "School ID, Department Code and Name are required", 
+                error, 
                 "Missing Information", JOptionPane.WARNING_MESSAGE);
             return false;
         }
         
         // Validate numeric fields
-        try {
-            if (!schIdField.getText().trim().isEmpty()) {
-                Integer.parseInt(schIdField.getText().trim());
-            }
-            if (!deptCodeField.getText().trim().isEmpty()) {
-                Integer.parseInt(deptCodeField.getText().trim());
-            }
-            if (!idField.getText().trim().isEmpty()) {
-                Integer.parseInt(idField.getText().trim());
-            }
-        } catch (NumberFormatException e) {
+        error = DepartmentValidator.checkNumeric(idField.getText(), schIdField.getText(), deptCodeField.getText());
+        if (error != null) {
             JOptionPane.showMessageDialog(this, 
-                "School ID, Department Code and ID must be numeric", 
+                error, 
                 "Invalid Input", JOptionPane.WARNING_MESSAGE);
             return false;
         }
@@ -146,122 +146,309 @@ public class DepartmentManageWindow extends JDialog {
     }
     
     /**
-     * Insert new department
+     * Insert new department.
+     * The write is queued; the result is reported when it has been committed.
      */
     private void insertDepartment() {
+        int id = 0;
+        if (!idField.getText().trim().isEmpty()) {
+            id = Integer.parseInt(idField.getText().trim());
+        }
+        
+        int schId = Integer.parseInt(schIdField.getText().trim());
+        int deptCode = Integer.parseInt(deptCodeField.getText().trim());
+        String name = nameField.getText().trim();
+        String location = locationField.getText().trim();
+        String email = emailField.getText().trim();
+        
+        // If ID is provided, it is used for insertion; otherwise the database assigns one
+        setBusy(true);
+        DatabaseConnector.getWriteQueue().insert(new Department(id, schId, deptCode, name, location, email))
+            .whenCompleteAsync((inserted, error) -> {
+                setBusy(false);
+                if (error != null) {
+                    showWriteError("Error adding department: ", error);
+                } else if (inserted != null) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Department added successfully!", 
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                    
+                    // Show the new row in the parent window and clear fields
+                    clearFields();
+                    parentWindow.departmentInserted(inserted);
+                }
+            }, SwingUtilities::invokeLater);
+    }
+    
+    /**
+     * Read the department whose ID has been entered. If the other fields are still empty it is
+     * shown in the form; otherwise the typed values are kept and only its version is remembered.
+     */
+    private void loadEnteredDepartment() {
+        int id;
         try {
-            Integer id = null;
-            if (!idField.getText().trim().isEmpty()) {
-                id = Integer.parseInt(idField.getText().trim());
+            id = Integer.parseInt(idField.getText().trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (id == loadedId) {
+            return;
+        }
+        
+        readDepartment(id, department -> {
+            if (department == null || !idField.getText().trim().equals(String.valueOf(id))) {
+                return; // No such department yet, or the ID was changed while it was read
             }
-            
-            int schId = Integer.parseInt(schIdField.getText().trim());
-            int deptCode = Integer.parseInt(deptCodeField.getText().trim());
-            String name = nameField.getText().trim();
-            String location = locationField.getText().trim();
-            String email = emailField.getText().trim();
-            
-            int rowsAffected;
-            
-            // If ID is provided, use it for insertion
-            if (id != null) {
-                rowsAffected = DatabaseConnector.insertDepartmentWithId(id, schId, deptCode, name, location, email);
+            if (isFormEmpty()) {
+                showDepartment(department);
             } else {
-                rowsAffected = DatabaseConnector.insertDepartment(schId, deptCode, name, location, email);
+                loadedId = id;
+                loadedVersion = department.getVersion();
+            }
+        });
+    }
+    
+    /**
+     * Read a department in the background and hand it to an action on the EDT.
+     * The buttons are disabled meanwhile; a failed read is reported and the action is skipped.
+     * @param id Department ID
+     * @param action Receives the department, or null if there is none with that ID
+     */
+    private void readDepartment(int id, Consumer<Department> action) {
+        setBusy(true);
+        new SwingWorker<Department, Void>() {
+            @Override
+            protected Department doInBackground() throws Exception {
+                // Served from the department cache when the record was read recently
+                return DatabaseConnector.getDepartmentById(id);
             }
             
-            if (rowsAffected > 0) {
-                JOptionPane.showMessageDialog(this, 
-                    "Department added successfully!", 
-                    "Success", JOptionPane.INFORMATION_MESSAGE);
-                
-                // Refresh parent window and clear fields
-                clearFields();
-                parentWindow.loadDepartmentData();
+            @Override
+            protected void done() {
+                setBusy(false);
+                Department department;
+                try {
+                    department = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(DepartmentManageWindow.this, 
+                        "Error loading department: " + cause.getMessage(), 
+                        "Database Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                action.accept(department);
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, 
-                "Error adding department: " + e.getMessage(), 
-                "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        }.execute();
     }
     
     /**
-     * Update existing department
+     * Get the version to check a write of the entered ID against: the one already read for it,
+     * or, if it has not been read, the current one. The form fields are left as typed.
+     * @param id Entered ID
+     * @param action Receives the version, or is skipped if there is no such department
      */
-    private void updateDepartment() {
-        try {
-            int id = Integer.parseInt(idField.getText().trim());
-            int schId = Integer.parseInt(schIdField.getText().trim());
-            int deptCode = Integer.parseInt(deptCodeField.getText().trim());
-            String name = nameField.getText().trim();
-            String location = locationField.getText().trim();
-            String email = emailField.getText().trim();
-            
-            int rowsAffected = DatabaseConnector.updateDepartment(id, schId, deptCode, name, location, email);
-            
-            if (rowsAffected > 0) {
-                JOptionPane.showMessageDialog(this, 
-                    "Department updated successfully!", 
-                    "Success", JOptionPane.INFORMATION_MESSAGE);
-                
-                // Refresh parent window and clear fields
-                clearFields();
-                parentWindow.loadDepartmentData();
-            } else {
+    private void withVersionOf(int id, Consumer<Long> action) {
+        if (id == loadedId) {
+            action.accept(loadedVersion);
+            return;
+        }
+        readDepartment(id, department -> {
+            if (department == null) {
                 JOptionPane.showMessageDialog(this, 
-                    "No department found with ID " + idField.getText().trim(), 
+                    "No department found with ID " + id, 
                     "Not Found", JOptionPane.WARNING_MESSAGE);
+            } else {
+                action.accept(department.getVersion());
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
-            JOptionPane.showMessageDialog(this, 
-                "Error updating department: " + e.getMessage(), 
-                "Database Error", JOptionPane.ERROR_MESSAGE);
-        }
+        });
+    }
+    
+    /**
+     * Fill the form with a department and remember the version it was read at
+     * @param department Department as stored
+     */
+    private void showDepartment(Department department) {
+        idField.setText(String.valueOf(department.getId()));
+        schIdField.setText(String.valueOf(department.getSchId()));
+        deptCodeField.setText(String.valueOf(department.getDeptCode()));
+        nameField.setText(department.getName());
+        locationField.setText(department.getLocation());
+        emailField.setText(department.getEmail());
+        loadedId = department.getId();
+        loadedVersion = department.getVersion();
+    }
+    
+    /**
+     * Whether nothing but the ID has been typed into the form
+     */
+    private boolean isFormEmpty() {
+        return schIdField.getText().trim().isEmpty() && deptCodeField.getText().trim().isEmpty()
+            && nameField.getText().trim().isEmpty() && locationField.getText().trim().isEmpty()
+            && emailField.getText().trim().isEmpty();
+    }
+    
+    /**
+     * Update existing department.
+     * The write is queued; the result is reported when it has been committed.
+     */
+    private void updateDepartment() {
+        int id = Integer.parseInt(idField.getText().trim());
+        int schId = Integer.parseInt(schIdField.getText().trim());
+        int deptCode = Integer.parseInt(deptCodeField.getText().trim());
+        String name = nameField.getText().trim();
+        String location = locationField.getText().trim();
+        String email = emailField.getText().trim();
+        
+        withVersionOf(id, version ->
+            submitUpdate(new Department(id, schId, deptCode, name, location, email, version)));
+    }
+    
+    /**
+     * Queue an update that only applies if the stored department still has the version it carries
+     * @param updated New values
+     */
+    private void submitUpdate(Department updated) {
+        setBusy(true);
+        DatabaseConnector.getWriteQueue().update(updated)
+            .whenCompleteAsync((stored, error) -> {
+                setBusy(false);
+                DepartmentConflictException conflict = conflictOf(error);
+                if (conflict != null) {
+                    Department current = conflict.getCurrent();
+                    int choice = DepartmentEditor.askConflictResolution(this, updated, current);
+                    parentWindow.departmentUpdated(current);
+                    if (choice == DepartmentEditor.KEEP_MINE) {
+                        submitUpdate(updated.withVersion(current.getVersion()));
+                    } else if (choice == DepartmentEditor.USE_SAVED) {
+                        showDepartment(current);
+                    }
+                } else if (error != null) {
+                    showWriteError("Error updating department: ", error);
+                } else if (stored != null) {
+                    JOptionPane.showMessageDialog(this, 
+                        "Department updated successfully!", 
+                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                    
+                    // Update the row in the parent window and clear fields
+                    clearFields();
+                    parentWindow.departmentUpdated(stored);
+                } else {
+                    JOptionPane.showMessageDialog(this, 
+                        "This department was deleted by someone else.", 
+                        "Department Deleted", JOptionPane.WARNING_MESSAGE);
+                    clearFields();
+                    parentWindow.departmentDeleted(updated.getId());
+                }
+            }, SwingUtilities::invokeLater);
     }
     
     /**
-     * Delete department
+     * Delete department.
+     * The write is queued; the result is reported when it has been committed.
      */
     private void deleteDepartment() {
-        int confirmResult = JOptionPane.showConfirmDialog(this,
-            "Are you sure you want to delete the department with ID " + idField.getText().trim() + "?",
-            "Confirm Deletion", JOptionPane.YES_NO_OPTION);
+        int id;
+        try {
+            id = Integer.parseInt(idField.getText().trim());
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, 
+                "School ID, Department Code and ID must be numeric", 
+                "Invalid Input", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
         
-        if (confirmResult == JOptionPane.YES_OPTION) {
-            try {
-                int id = Integer.parseInt(idField.getText().trim());
-                
-                int rowsAffected = DatabaseConnector.deleteDepartment(id);
-                
-                if (rowsAffected > 0) {
+        withVersionOf(id, version -> {
+            int confirmResult = JOptionPane.showConfirmDialog(this,
+                "Are you sure you want to delete the department with ID " + id + "?",
+                "Confirm Deletion", JOptionPane.YES_NO_OPTION);
+            
+            if (confirmResult == JOptionPane.YES_OPTION) {
+                submitDelete(id, version);
+            }
+        });
+    }
+    
+    /**
+     * Queue a delete that only applies if the stored department still has the given version
+     * @param id Department ID
+     * @param expectedVersion Version the user has seen
+     */
+    private void submitDelete(int id, long expectedVersion) {
+        setBusy(true);
+        DatabaseConnector.getWriteQueue().delete(id, expectedVersion)
+            .whenCompleteAsync((rowsAffected, error) -> {
+                setBusy(false);
+                DepartmentConflictException conflict = conflictOf(error);
+                if (conflict != null) {
+                    Department current = conflict.getCurrent();
+                    parentWindow.departmentUpdated(current);
+                    int again = JOptionPane.showConfirmDialog(this,
+                        "This department was changed by someone else after it was read.\n"
+                            + "Delete it anyway?",
+                        "Edit Conflict", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+                    if (again == JOptionPane.YES_OPTION) {
+                        submitDelete(id, current.getVersion());
+                    }
+                } else if (error != null) {
+                    showWriteError("Error deleting department: ", error);
+                } else if (rowsAffected > 0) {
                     JOptionPane.showMessageDialog(this, 
                         "Department deleted successfully!", 
                         "Success", JOptionPane.INFORMATION_MESSAGE);
                     
-                    // Refresh parent window and clear fields
+                    // Remove the row from the parent window and clear fields
                     clearFields();
-                    parentWindow.loadDepartmentData();
+                    parentWindow.departmentDeleted(id);
                 } else {
                     JOptionPane.showMessageDialog(this, 
-                        "No department found with ID " + idField.getText().trim(), 
+                        "No department found with ID " + id, 
                         "Not Found", JOptionPane.WARNING_MESSAGE);
                 }
-            } catch (SQLException e) {
-                e.printStackTrace();
-                JOptionPane.showMessageDialog(this, 
-                    "Error deleting department: " + e.getMessage(), 
-                    "Database Error", JOptionPane.ERROR_MESSAGE);
-            }
-        }
+            }, SwingUtilities::invokeLater);
+    }
+    
+    /**
+     * Disable the action buttons while a queued write is pending
+     * @param busy true while a write is in flight
+     */
+    private void setBusy(boolean busy) {
+        insertButton.setEnabled(!busy);
+        updateButton.setEnabled(!busy);
+        deleteButton.setEnabled(!busy);
+        clearButton.setEnabled(!busy);
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+    
+    /**
+     * Report a failed queued write in this window
+     * @param message Message prefix
+     * @param error Failure from the write queue
+     */
+    private void showWriteError(String message, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        cause.printStackTrace();
+        JOptionPane.showMessageDialog(this, 
+            message + cause.getMessage(), 
+            "Database Error", JOptionPane.ERROR_MESSAGE);
+    }
+    
+    /**
+     * Get the conflict a queued write failed with, if that is why it failed
+     * @param error Failure from the write queue, or null
+     * @return The conflict, or null
+     */
+    private static DepartmentConflictException conflictOf(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof DepartmentConflictException ? (DepartmentConflictException) cause : null;
     }
     
     /**
      * Clear all input fields
      */
     private void clearFields() {
+        loadedId = -1;
+        loadedVersion = 0;
         idField.setText("");
         schIdField.setText("");
         deptCodeField.setText("");
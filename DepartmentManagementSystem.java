@@ -1,4 +1,6 @@
 import javax.swing.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * Main application class
@@ -6,9 +8,31 @@ import javax.swing.*;
 public class DepartmentManagementSystem {
     /**
      * Main method to launch application
-     * @param args Command line arguments (not used)
+     * @param args Command line arguments; "--import file.csv [errors.csv]" runs a bulk import without the UI,
+     *             "--server [port]" serves the JSON HTTP API without the UI
      */
     public static void main(String[] args) {
+        if (args.length >= 2 && "--import".equals(args[0])) {
+            System.exit(runImport(args));
+        }
+        if (args.length >= 1 && "--server".equals(args[0])) {
+            Integer port = null;
+            if (args.length >= 2) {
+                try {
+                    port = Integer.parseInt(args[1]);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid port: " + args[1]);
+                    System.exit(1);
+                }
+            }
+            // The server's threads keep the process alive once main returns
+            int status = DepartmentServer.run(port);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+        
         try {
             // Set look and feel to system default
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -22,4 +46,27 @@ public class DepartmentManagementSystem {
         // Launch login window
         SwingUtilities.invokeLater(() -> new LoginWindow());
     }
+    
+    /**
+     * Import departments from a CSV file and print the totals
+     * @param args "--import", the CSV file and optionally the error file
+     * @return Process exit code
+     */
+    private static int runImport(String[] args) {
+        Path csv = Paths.get(args[1]);
+        Path errorFile = args.length >= 3 ? Paths.get(args[2]) : DepartmentCsvImporter.defaultErrorFile(csv);
+        
+        DatabaseConnector.initializeDatabase();
+        try {
+            DepartmentCsvImporter.Result result = new DepartmentCsvImporter().importFile(csv, errorFile,
+                (rowsRead, imported, rejected) -> System.out.print("\r" + rowsRead + " rows read, "
+                    + imported + " imported, " + rejected + " rejected"));
+            System.out.println();
+            System.out.println("Import finished: " + result);
+            return result.getRejected() > 0 ? 2 : 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return 1;
+        }
+    }
 }
@@ -0,0 +1,386 @@
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filter and sort order for a department list, turned into parameterized SQL.
+ * <p>
+ * All conditions are combined with AND; unset ones are left out of the WHERE clause.
+ * User input only ever reaches the database as bound parameters, and the ORDER BY clause
+ * is built from the {@link SortColumn} enum, never from text. Rows with equal sort values
+ * are ordered by ID so every query has a stable order.
+ * <p>
+ * Instances are immutable; use {@link #builder()} to create one.
+ */
+public class DepartmentQuery {
+    /** Every department in ID order */
+    public static final DepartmentQuery ALL = builder().build();
+
+    /**
+     * Columns a list can be sorted by, in table column order
+     */
+    public enum SortColumn {
+        ID("d.id"),
+        SCHOOL_ID("d.sch_id"),
+        DEPT_CODE("d.dept_code"),
+        NAME("d.dept_name"),
+        LOCATION("d.dept_location"),
+        EMAIL("d.dept_email");
+
+        final String sql;
+
+        SortColumn(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    private final Integer schId;
+    private final Integer codeFrom;
+    private final Integer codeTo;
+    private final String location;
+    private final String emailDomain;
+    private final String searchText;
+    private final SortColumn sortColumn;
+    private final boolean ascending;
+
+    private DepartmentQuery(Builder builder) {
+        this.schId = builder.schId;
+        this.codeFrom = builder.codeFrom;
+        this.codeTo = builder.codeTo;
+        this.location = builder.location;
+        this.emailDomain = builder.emailDomain;
+        this.searchText = builder.searchText;
+        this.sortColumn = builder.sortColumn;
+        this.ascending = builder.ascending;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Start a builder with this query's settings
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.schId = schId;
+        builder.codeFrom = codeFrom;
+        builder.codeTo = codeTo;
+        builder.location = location;
+        builder.emailDomain = emailDomain;
+        builder.searchText = searchText;
+        builder.sortColumn = sortColumn;
+        builder.ascending = ascending;
+        return builder;
+    }
+
+    public Integer getSchId() { return schId; }
+    public Integer getCodeFrom() { return codeFrom; }
+    public Integer getCodeTo() { return codeTo; }
+    public String getLocation() { return location; }
+    public String getEmailDomain() { return emailDomain; }
+    public String getSearchText() { return searchText; }
+
+    /**
+     * Column the rows are sorted by, or null for the default order
+     * (ID for plain lists, best match first for full-text searches)
+     */
+    public SortColumn getSortColumn() { return sortColumn; }
+    public boolean isAscending() { return ascending; }
+
+    /**
+     * Check whether any condition narrows the list
+     * @return true if some rows may be left out
+     */
+    public boolean isFiltered() {
+        return schId != null || codeFrom != null || codeTo != null || location != null
+            || emailDomain != null || searchText != null;
+    }
+
+    /**
+     * Check whether rows come back in ascending ID order, so they can be paged by ID
+     * @return true for queries without a full-text search sorted by ID ascending (or unsorted)
+     */
+    public boolean isIdOrdered() {
+        return searchText == null && (sortColumn == null || sortColumn == SortColumn.ID && ascending);
+    }
+
+    /**
+     * Check a department against the filter conditions, the way the SQL would.
+     * Full-text searches cannot be checked here.
+     * @param department Department to test
+     * @return true if the department passes every condition
+     * @throws IllegalStateException if the query has a full-text search
+     */
+    public boolean matches(Department department) {
+        if (searchText != null) {
+            throw new IllegalStateException("Full-text searches can only be evaluated by the database");
+        }
+        if (schId != null && department.getSchId() != schId) {
+            return false;
+        }
+        if (codeFrom != null && department.getDeptCode() < codeFrom) {
+            return false;
+        }
+        if (codeTo != null && department.getDeptCode() > codeTo) {
+            return false;
+        }
+        if (location != null && (department.getLocation() == null
+                || !foldAscii(department.getLocation()).contains(foldAscii(location)))) {
+            return false;
+        }
+        if (emailDomain != null && (department.getEmail() == null
+                || !foldAscii(department.getEmail()).endsWith("@" + foldAscii(emailDomain)))) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Lower-case A-Z only, the way SQLite's LIKE compares; other letters must match exactly
+     */
+    private static String foldAscii(String text) {
+        char[] chars = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                if (chars == null) {
+                    chars = text.toCharArray();
+                }
+                chars[i] = (char) (c + ('a' - 'A'));
+            }
+        }
+        return chars != null ? new String(chars) : text;
+    }
+
+    /**
+     * Build a SELECT over departments (aliased d) with this query's conditions and order
+     * @param columns Select list, e.g. "d.id"
+     * @param params Receives the parameter values in placeholder order
+     * @return SQL text
+     */
+    String toSql(String columns, List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns);
+        appendFromWhere(sql, params);
+        sql.append(" ORDER BY ").append(orderBy());
+        return sql.toString();
+    }
+
+    /**
+     * Build a SELECT of one page of rows in this query's order, skipping the rows before it
+     * in the database rather than reading them
+     * @param columns Select list
+     * @param limit Maximum number of rows
+     * @param offset Number of rows to skip
+     * @param params Receives the parameter values in placeholder order
+     * @return SQL text
+     */
+    String toSql(String columns, int limit, int offset, List<Object> params) {
+        String sql = toSql(columns, params) + " LIMIT ? OFFSET ?";
+        params.add(limit);
+        params.add(offset);
+        return sql;
+    }
+
+    /**
+     * Build a COUNT(*) over the rows this query selects
+     * @param params Receives the parameter values in placeholder order
+     * @return SQL text
+     */
+    String toCountSql(List<Object> params) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*)");
+        appendFromWhere(sql, params);
+        return sql.toString();
+    }
+
+    /**
+     * Build a keyset page query: the next rows after a given ID, in ID order
+     * @param columns Select list
+     * @param afterId Only rows with a greater ID are returned
+     * @param limit Maximum number of rows
+     * @param params Receives the parameter values in placeholder order
+     * @return SQL text
+     * @throws IllegalStateException if the query is not in ID order
+     */
+    String toPageSql(String columns, long afterId, int limit, List<Object> params) {
+        if (!isIdOrdered()) {
+            throw new IllegalStateException("Keyset paging needs ascending ID order");
+        }
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns);
+        boolean filtered = appendFromWhere(sql, params);
+        sql.append(filtered ? " AND" : " WHERE").append(" d.id > ? ORDER BY d.id LIMIT ?");
+        params.add(afterId);
+        params.add(limit);
+        return sql.toString();
+    }
+
+    /**
+     * Bind collected parameter values to a statement
+     * @param pstmt Statement prepared from SQL built by this class
+     * @param params Values in placeholder order
+     * @throws SQLException if a value cannot be bound
+     */
+    static void bind(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+
+    /**
+     * Append the FROM clause and, if there are conditions, the WHERE clause
+     * @return true if a WHERE clause was appended
+     */
+    private boolean appendFromWhere(StringBuilder sql, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        if (searchText != null) {
+            sql.append(" FROM departments_fts f JOIN departments d ON d.id = f.rowid");
+            conditions.add("departments_fts MATCH ?");
+            params.add(DatabaseConnector.toFullTextQuery(searchText));
+        } else {
+            sql.append(" FROM departments d");
+        }
+        if (schId != null) {
+            conditions.add("d.sch_id = ?");
+            params.add(schId);
+        }
+        if (codeFrom != null) {
+            conditions.add("d.dept_code >= ?");
+            params.add(codeFrom);
+        }
+        if (codeTo != null) {
+            conditions.add("d.dept_code <= ?");
+            params.add(codeTo);
+        }
+        if (location != null) {
+            conditions.add("d.dept_location LIKE ? ESCAPE '\\'");
+            params.add("%" + escapeLike(location) + "%");
+        }
+        if (emailDomain != null) {
+            conditions.add("d.dept_email LIKE ? ESCAPE '\\'");
+            params.add("%@" + escapeLike(emailDomain));
+        }
+        if (conditions.isEmpty()) {
+            return false;
+        }
+        sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        return true;
+    }
+
+    private String orderBy() {
+        if (sortColumn == null) {
+            return searchText != null ? "f.rank, d.id" : "d.id";
+        }
+        String direction = ascending ? "" : " DESC";
+        if (sortColumn == SortColumn.ID) {
+            return "d.id" + direction;
+        }
+        return sortColumn.sql + direction + ", d.id" + direction;
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        if (searchText != null) {
+            parts.add("matching \"" + searchText + "\"");
+        }
+        if (schId != null) {
+            parts.add("school " + schId);
+        }
+        if (codeFrom != null || codeTo != null) {
+            parts.add("code " + (codeFrom != null ? codeFrom : "") + ".." + (codeTo != null ? codeTo : ""));
+        }
+        if (location != null) {
+            parts.add("location containing \"" + location + "\"");
+        }
+        if (emailDomain != null) {
+            parts.add("email @" + emailDomain);
+        }
+        return parts.isEmpty() ? "all departments" : String.join(", ", parts);
+    }
+
+    /**
+     * Collects the settings of a query. Blank text values and nulls mean "no condition".
+     */
+    public static class Builder {
+        private Integer schId;
+        private Integer codeFrom;
+        private Integer codeTo;
+        private String location;
+        private String emailDomain;
+        private String searchText;
+        private SortColumn sortColumn;
+        private boolean ascending = true;
+
+        private Builder() {
+        }
+
+        public Builder schId(Integer schId) {
+            this.schId = schId;
+            return this;
+        }
+
+        /**
+         * Limit department codes to a range; either end may be null for an open range
+         */
+        public Builder codeRange(Integer from, Integer to) {
+            this.codeFrom = from;
+            this.codeTo = to;
+            return this;
+        }
+
+        /**
+         * Keep departments whose location contains the text, ignoring case
+         */
+        public Builder location(String location) {
+            this.location = blankToNull(location);
+            return this;
+        }
+
+        /**
+         * Keep departments whose email address is at the domain; a leading '@' is ignored
+         */
+        public Builder emailDomain(String domain) {
+            String value = blankToNull(domain);
+            this.emailDomain = value != null && value.startsWith("@") ? blankToNull(value.substring(1)) : value;
+            return this;
+        }
+
+        /**
+         * Keep departments matching a full-text search; every word is prefix-matched
+         * against name, location and email
+         */
+        public Builder searchText(String text) {
+            this.searchText = text != null && !DatabaseConnector.toFullTextQuery(text).isEmpty() ? text.trim() : null;
+            return this;
+        }
+
+        /**
+         * @param column Column to sort by, or null for the default order
+         * @param ascending Sort direction
+         */
+        public Builder sortBy(SortColumn column, boolean ascending) {
+            this.sortColumn = column;
+            this.ascending = ascending;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if the code range is empty
+         */
+        public DepartmentQuery build() {
+            if (codeFrom != null && codeTo != null && codeFrom > codeTo) {
+                throw new IllegalArgumentException("Department code range is empty: " + codeFrom + " to " + codeTo);
+            }
+            return new DepartmentQuery(this);
+        }
+
+        private static String blankToNull(String value) {
+            return value != null && !value.trim().isEmpty() ? value.trim() : null;
+        }
+    }
+}
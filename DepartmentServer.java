@@ -0,0 +1,646 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Headless JSON HTTP API over the department operations of {@link DatabaseConnector},
+ * so other tools can share one process (and its connection pool and caches) instead of
+ * opening the database file themselves.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *   <li>{@code GET /departments} - list, with the filters of {@link DepartmentQuery} as query parameters
+ *       ({@code schId, codeFrom, codeTo, location, emailDomain, q, sort, order}) and
+ *       {@code limit} plus {@code afterId} (ID order) or {@code offset} (other orders)</li>
+ *   <li>{@code GET /departments/count} - number of departments matching the same filters</li>
+ *   <li>{@code GET|PUT|DELETE /departments/{id}} - read, replace or delete one department</li>
+ *   <li>{@code POST /departments} - insert; the ID is assigned by the database if omitted</li>
+ *   <li>{@code POST /departments/batch} - {@code {"op": "insert"|"update", "departments": [...]}}
+ *       or {@code {"op": "delete", "ids": [...]}}, answered with the outcome of every row</li>
+ *   <li>{@code POST /auth/verify} - check {@code {"username", "password"}}</li>
+ *   <li>{@code GET /health}</li>
+ * </ul>
+ * Departments carry a {@code version} that every update increments. GET returns it as the ETag;
+ * a PUT or DELETE with {@code If-Match} (or a {@code version} in the body or query) only applies
+ * if the row still has that version. Otherwise, and for inserts with a taken ID, the answer is
+ * 409 with the stored row as {@code current}, so the client can merge and retry.
+ * <p>
+ * Each request runs on its own virtual thread when the JVM has them (Java 21+), otherwise on a
+ * bounded pool of platform threads. Reads run concurrently on pooled connections; single-row
+ * writes go through the shared {@link DepartmentWriteQueue}, whose one writer thread serializes
+ * and group-commits them, and batch writes run one at a time.
+ */
+public class DepartmentServer {
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 1000;
+    // Fallback when virtual threads are not available; beyond this requests run on the accepting thread
+    private static final int MAX_PLATFORM_THREADS = 256;
+    // Values of the sort parameter, named like the JSON fields
+    private static final Map<String, DepartmentQuery.SortColumn> SORT_COLUMNS = new HashMap<>();
+
+    static {
+        SORT_COLUMNS.put("id", DepartmentQuery.SortColumn.ID);
+        SORT_COLUMNS.put("schId", DepartmentQuery.SortColumn.SCHOOL_ID);
+        SORT_COLUMNS.put("deptCode", DepartmentQuery.SortColumn.DEPT_CODE);
+        SORT_COLUMNS.put("name", DepartmentQuery.SortColumn.NAME);
+        SORT_COLUMNS.put("location", DepartmentQuery.SortColumn.LOCATION);
+        SORT_COLUMNS.put("email", DepartmentQuery.SortColumn.EMAIL);
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final int maxBodyBytes;
+    // Batch writes bypass the write queue; one at a time so they do not pile up on SQLite's write lock
+    private final ReentrantLock batchWriteLock = new ReentrantLock(true);
+
+    /**
+     * A request that cannot be served, answered with an error status and message
+     */
+    private static class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Handles one request and returns the JSON response body
+     */
+    @FunctionalInterface
+    private interface Route {
+        String handle(HttpExchange exchange) throws Exception;
+    }
+
+    /**
+     * Bind the server; requests are accepted once {@link #start()} is called
+     * @param host Address to listen on, e.g. 127.0.0.1 for local clients only
+     * @param port TCP port, or 0 for any free port
+     * @param maxBodyBytes Largest request body accepted
+     * @throws IOException if the address cannot be bound
+     */
+    public DepartmentServer(String host, int port, int maxBodyBytes) throws IOException {
+        this.maxBodyBytes = maxBodyBytes;
+        // The JDK server writes headers and body separately; without TCP_NODELAY every small
+        // response waits out the client's delayed ACK (~40 ms). Read once, when the server first starts.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformThreadExecutor();
+        server.setExecutor(executor);
+        server.createContext("/departments", exchange -> serve(exchange, this::departments));
+        server.createContext("/auth/verify", exchange -> serve(exchange, this::verify));
+        server.createContext("/health", exchange -> serve(exchange, ex -> {
+            requireMethod(ex, "GET");
+            return "{\"status\":\"ok\"}";
+        }));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests and wait for running ones to finish
+     * @param delaySeconds Maximum time to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Check whether requests run on virtual threads
+     */
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Start a server with the configured address and keep it running until the process is stopped
+     * @param portOverride Port from the command line, or null for the configured one
+     * @return Process exit code if the server could not start
+     */
+    static int run(Integer portOverride) {
+        DatabaseConnector.initializeDatabase();
+        // Drops cached departments when other processes change them
+        DatabaseConnector.getChangeMonitor();
+        DatabaseConfig config = DatabaseConnector.getConfig();
+        int port = portOverride != null ? portOverride : config.getServerPort();
+        try {
+            DepartmentServer server = new DepartmentServer(config.getServerHost(), port, config.getServerMaxBodyBytes());
+            // Runs alongside the database shutdown hook; the write queue is flushed either way
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(2), "http-shutdown"));
+            server.start();
+            System.out.println("Serving departments on http://" + config.getServerHost() + ":" + server.getAddress().getPort()
+                + (server.isUsingVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+            return 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Cannot start server on " + config.getServerHost() + ":" + port + ": " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor(), looked up at runtime so the code still builds for Java 17
+     * @return The executor, or null before Java 21
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(0, MAX_PLATFORM_THREADS, 60, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), r -> {
+                Thread t = new Thread(r, "http-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        // When every thread is busy the accepting thread handles the request itself, which slows intake down
+        pool.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        return pool;
+    }
+
+    /**
+     * Run a route and send its result, turning failures into JSON error responses
+     */
+    private void serve(HttpExchange exchange, Route route) throws IOException {
+        int status = 200;
+        String body;
+        try {
+            body = route.handle(exchange);
+            if (body == null) {
+                status = 204;
+            } else if ("POST".equals(exchange.getRequestMethod()) && exchange.getResponseHeaders().containsKey("Location")) {
+                status = 201;
+            }
+        } catch (HttpError e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (DepartmentConflictException e) {
+            status = 409;
+            StringBuilder out = new StringBuilder("{\"error\":");
+            Json.writeString(out, e.getMessage());
+            out.append(",\"current\":");
+            if (e.getCurrent() != null) {
+                Json.writeDepartment(out, e.getCurrent());
+            } else {
+                out.append("null");
+            }
+            body = out.append('}').toString();
+        } catch (RejectedExecutionException | SQLTimeoutException e) {
+            status = 503; // Write queue full, or no database connection free in time
+            body = error(e.getMessage());
+        } catch (SQLException e) {
+            // Constraint violations (result code 19) are the client's doing, e.g. a duplicate ID
+            status = (e.getErrorCode() & 0xff) == 19 ? 409 : 500;
+            if (status == 500) {
+                e.printStackTrace();
+            }
+            body = error(e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 500;
+            body = error(e.toString());
+        }
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (body == null) {
+                exchange.sendResponseHeaders(status, -1);
+            } else {
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(status, bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Dispatch a request under /departments
+     */
+    private String departments(HttpExchange exchange) throws Exception {
+        String path = exchange.getRequestURI().getPath();
+        String rest = path.length() > "/departments".length() ? path.substring("/departments".length() + 1) : "";
+        if (rest.isEmpty()) {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                return insert(exchange);
+            }
+            requireMethod(exchange, "GET");
+            return list(exchange);
+        }
+        if ("count".equals(rest)) {
+            requireMethod(exchange, "GET");
+            return "{\"count\":" + DatabaseConnector.countDepartments(parseQuery(queryParameters(exchange))) + "}";
+        }
+        if ("batch".equals(rest)) {
+            requireMethod(exchange, "POST");
+            return batch(exchange);
+        }
+
+        int id;
+        try {
+            id = Integer.parseInt(rest);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "No such resource: " + path);
+        }
+        switch (exchange.getRequestMethod()) {
+            case "GET": {
+                Department department = DatabaseConnector.getDepartmentById(id);
+                if (department == null) {
+                    throw new HttpError(404, "Department " + id + " not found");
+                }
+                return writeDepartment(exchange, department);
+            }
+            case "PUT": {
+                Department department = readDepartment(readBody(exchange), id);
+                department = department.withVersion(expectedVersion(exchange, department.getVersion()));
+                Department stored = await(DatabaseConnector.getWriteQueue().update(department));
+                if (stored == null) {
+                    throw new HttpError(404, "Department " + id + " not found");
+                }
+                return writeDepartment(exchange, stored);
+            }
+            case "DELETE": {
+                String version = queryParameters(exchange).get("version");
+                long expected = expectedVersion(exchange, version != null ? parseVersion(version) : 0);
+                if (await(DatabaseConnector.getWriteQueue().delete(id, expected)) == 0) {
+                    throw new HttpError(404, "Department " + id + " not found");
+                }
+                return null;
+            }
+            default:
+                throw new HttpError(405, "Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+
+    /**
+     * GET /departments: one page of a filtered, sorted list
+     */
+    private String list(HttpExchange exchange) throws SQLException {
+        Map<String, String> params = queryParameters(exchange);
+        DepartmentQuery query = parseQuery(params);
+        int limit = intParameter(params, "limit", DEFAULT_LIMIT);
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+
+        // Read one row more than asked for to know whether there is a next page
+        List<Department> rows = new ArrayList<>(Math.min(limit + 1, 256));
+        StringBuilder out = new StringBuilder("{\"departments\":[");
+        String next;
+        if (query.isIdOrdered() && !params.containsKey("offset")) {
+            long afterId = intParameter(params, "afterId", 0);
+            DepartmentColumnStore page = new DepartmentColumnStore(limit + 1, new StringPool(0));
+            DatabaseConnector.getDepartmentPage(query, afterId, limit + 1, page);
+            for (int i = 0; i < page.size(); i++) {
+                rows.add(page.getDepartment(i));
+            }
+            next = rows.size() > limit ? "\"nextAfterId\":" + rows.get(limit - 1).getId() : null;
+        } else {
+            if (params.containsKey("afterId")) {
+                throw new IllegalArgumentException("afterId only applies to lists in ascending ID order; use offset");
+            }
+            int offset = intParameter(params, "offset", 0);
+            if (offset < 0) {
+                throw new IllegalArgumentException("offset must not be negative");
+            }
+            DepartmentColumnStore page = new DepartmentColumnStore(limit + 1, new StringPool(0));
+            DatabaseConnector.getDepartmentPageAt(query, offset, limit + 1, page);
+            for (int i = 0; i < page.size(); i++) {
+                rows.add(page.getDepartment(i));
+            }
+            next = rows.size() > limit ? "\"nextOffset\":" + (offset + limit) : null;
+        }
+
+        for (int i = 0; i < Math.min(limit, rows.size()); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            Json.writeDepartment(out, rows.get(i));
+        }
+        out.append(']');
+        if (next != null) {
+            out.append(',').append(next);
+        }
+        return out.append('}').toString();
+    }
+
+    /**
+     * POST /departments: insert one department through the write queue
+     */
+    private String insert(HttpExchange exchange) throws Exception {
+        Map<String, Object> body = readBody(exchange);
+        Department stored = await(DatabaseConnector.getWriteQueue().insert(readDepartment(body, 0)));
+        if (stored == null) {
+            throw new HttpError(409, "Department was not inserted");
+        }
+        exchange.getResponseHeaders().set("Location", "/departments/" + stored.getId());
+        return writeDepartment(exchange, stored);
+    }
+
+    /**
+     * A department as the response body, with its version as the ETag
+     */
+    private static String writeDepartment(HttpExchange exchange, Department department) {
+        exchange.getResponseHeaders().set("ETag", "\"" + department.getVersion() + "\"");
+        StringBuilder out = new StringBuilder();
+        Json.writeDepartment(out, department);
+        return out.toString();
+    }
+
+    /**
+     * The version a write is conditional on: the If-Match header if present, else the fallback
+     * @return Version, or 0 for an unconditional write ({@code If-Match: *} or no version given)
+     */
+    private static long expectedVersion(HttpExchange exchange, long fallback) {
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch == null) {
+            return fallback;
+        }
+        String tag = ifMatch.trim();
+        if ("*".equals(tag)) {
+            return 0;
+        }
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        return parseVersion(tag);
+    }
+
+    private static long parseVersion(String value) {
+        try {
+            long version = Long.parseLong(value.trim());
+            if (version < 0) {
+                throw new NumberFormatException();
+            }
+            return version;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("version must be a non-negative whole number: " + value);
+        }
+    }
+
+    /**
+     * POST /departments/batch: insert, update or delete many rows, reporting each row's outcome
+     */
+    private String batch(HttpExchange exchange) throws Exception {
+        Map<String, Object> body = readBody(exchange);
+        String op = String.valueOf(body.get("op")).toLowerCase(Locale.ROOT);
+        BatchResult result;
+        batchWriteLock.lock();
+        try {
+            switch (op) {
+                case "insert":
+                case "update": {
+                    List<Department> departments = new ArrayList<>();
+                    for (Object item : array(body, "departments")) {
+                        if (!(item instanceof Map)) {
+                            throw new IllegalArgumentException("departments must hold objects");
+                        }
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> fields = (Map<String, Object>) item;
+                        departments.add(readDepartment(fields, "update".equals(op) ? -1 : 0));
+                    }
+                    result = "insert".equals(op) ? DatabaseConnector.insertDepartments(departments)
+                        : DatabaseConnector.updateDepartments(departments);
+                    break;
+                }
+                case "delete": {
+                    List<Integer> ids = new ArrayList<>();
+                    for (Object item : array(body, "ids")) {
+                        ids.add(toInt(item, "ids"));
+                    }
+                    result = DatabaseConnector.deleteDepartments(ids);
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("op must be insert, update or delete");
+            }
+        } finally {
+            batchWriteLock.unlock();
+        }
+
+        StringBuilder out = new StringBuilder();
+        out.append("{\"applied\":").append(result.getAppliedCount())
+            .append(",\"noMatch\":").append(result.getNoMatchCount())
+            .append(",\"failed\":").append(result.getFailedCount())
+            .append(",\"conflict\":").append(result.getConflictCount())
+            .append(",\"results\":[");
+        for (int i = 0; i < result.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append("{\"outcome\":\"").append(result.getOutcome(i)).append("\",\"error\":");
+            Json.writeString(out, result.getError(i));
+            out.append('}');
+        }
+        return out.append("]}").toString();
+    }
+
+    /**
+     * POST /auth/verify: check a user name and password
+     */
+    private String verify(HttpExchange exchange) throws Exception {
+        requireMethod(exchange, "POST");
+        Map<String, Object> body = readBody(exchange);
+        Object username = body.get("username");
+        Object password = body.get("password");
+        if (!(username instanceof String) || !(password instanceof String)) {
+            throw new IllegalArgumentException("username and password are required");
+        }
+        char[] chars = ((String) password).toCharArray();
+        try {
+            return "{\"valid\":" + DatabaseConnector.authenticate((String) username, chars) + "}";
+        } finally {
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    /**
+     * Build a department from a JSON object, applying the same rules as the edit form.
+     * An optional {@code version} makes an update conditional on it.
+     * @param fields JSON members
+     * @param pathId ID from the URL (overrides the body), 0 for an optional ID, -1 for a required one
+     */
+    private static Department readDepartment(Map<String, Object> fields, int pathId) {
+        String id = pathId > 0 ? String.valueOf(pathId) : text(fields, "id");
+        String schId = text(fields, "schId");
+        String deptCode = text(fields, "deptCode");
+        String name = text(fields, "name");
+        String error = DepartmentValidator.validate(id, schId, deptCode, name, pathId != 0);
+        if (error != null) {
+            throw new IllegalArgumentException(error);
+        }
+        String version = text(fields, "version");
+        return new Department(id != null && !id.trim().isEmpty() ? Integer.parseInt(id.trim()) : 0,
+            Integer.parseInt(schId.trim()), Integer.parseInt(deptCode.trim()), name.trim(),
+            text(fields, "location"), text(fields, "email"), version != null ? parseVersion(version) : 0);
+    }
+
+    /**
+     * A JSON member as text; whole numbers are written without a fraction
+     */
+    private static String text(Map<String, Object> fields, String key) {
+        Object value = fields.get(key);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Double && (Double) value == Math.rint((Double) value)) {
+            return String.valueOf(((Double) value).longValue());
+        }
+        return String.valueOf(value);
+    }
+
+    private static int toInt(Object value, String name) {
+        if (value instanceof Long && (Long) value == ((Long) value).intValue()) {
+            return ((Long) value).intValue();
+        }
+        throw new IllegalArgumentException(name + " must hold whole numbers");
+    }
+
+    private static List<?> array(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException(key + " must be an array");
+        }
+        return (List<?>) value;
+    }
+
+    /**
+     * Read the request body as a JSON object
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        byte[] bytes;
+        try (InputStream in = exchange.getRequestBody()) {
+            bytes = in.readNBytes(maxBodyBytes + 1);
+        }
+        if (bytes.length > maxBodyBytes) {
+            throw new HttpError(413, "Request body larger than " + maxBodyBytes + " bytes");
+        }
+        Object value = Json.parse(new String(bytes, StandardCharsets.UTF_8));
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Request body must be a JSON object");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Build a query from the filter and sort parameters of a request
+     */
+    private static DepartmentQuery parseQuery(Map<String, String> params) {
+        DepartmentQuery.Builder builder = DepartmentQuery.builder()
+            .schId(params.containsKey("schId") ? intParameter(params, "schId", 0) : null)
+            .codeRange(params.containsKey("codeFrom") ? intParameter(params, "codeFrom", 0) : null,
+                params.containsKey("codeTo") ? intParameter(params, "codeTo", 0) : null)
+            .location(params.get("location"))
+            .emailDomain(params.get("emailDomain"))
+            .searchText(params.get("q"));
+        String sort = params.get("sort");
+        if (sort != null) {
+            DepartmentQuery.SortColumn column = SORT_COLUMNS.get(sort);
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown sort column: " + sort);
+            }
+            builder.sortBy(column, !"desc".equalsIgnoreCase(params.get("order")));
+        }
+        return builder.build();
+    }
+
+    private static int intParameter(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a whole number: " + value);
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            if (!value.isEmpty()) {
+                params.put(key, value);
+            }
+        }
+        return params;
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!method.equals(exchange.getRequestMethod())) {
+            throw new HttpError(405, "Method not allowed: " + exchange.getRequestMethod());
+        }
+    }
+
+    /**
+     * Wait for a queued write; the request's thread is cheap to block when it is virtual
+     */
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder out = new StringBuilder("{\"error\":");
+        Json.writeString(out, message);
+        return out.append('}').toString();
+    }
+}
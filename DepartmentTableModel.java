@@ -0,0 +1,741 @@
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.table.AbstractTableModel;
+import java.beans.PropertyChangeListener;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntPredicate;
+
+/**
+ * Table model that loads departments one page at a time as rows become visible.
+ * It shows the rows selected by a {@link DepartmentQuery}: filtered, sorted and optionally
+ * full-text searched by SQLite, so only the ordered IDs and the visible pages leave the database.
+ * The ordered list of IDs is streamed in the background and published in chunks,
+ * so rows appear while the rest of the table is still loading.
+ * Pages are read with keyset paging on id (or by ID list for other orders) into column stores with pooled strings
+ * and kept in a bounded LRU cache; neighbouring pages are prefetched so scrolling does not stall.
+ * All state is confined to the event dispatch thread.
+ */
+public class DepartmentTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"ID", "School ID", "Dept Code", "Department Name", "Location", "Email"};
+
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 50;
+    private static final int PREFETCH_PAGES = 1;
+    private static final int KEY_CHUNK_SIZE = 5000;
+    private static final int MAX_POOLED_STRINGS = 100000;
+    // Above this many outside changes at once the list is reloaded; the monitor reloads past the same count
+    private static final int MAX_INCREMENTAL_CHANGES = DepartmentChangeMonitor.MAX_CHANGES;
+    // Published after the last chunk of IDs; compared by identity
+    private static final int[] END_OF_KEYS = new int[0];
+
+    // Background threads for ID scans and page queries
+    private static final ExecutorService LOADER = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "department-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // IDs of all loaded rows in display order; only the first rowCount entries are valid
+    private int[] rowIds = new int[0];
+    private int rowCount;
+    // ID -> row index for every loaded row
+    private IntIntHashMap rowIndex = new IntIntHashMap(0);
+
+    private final StringPool stringPool = new StringPool(MAX_POOLED_STRINGS);
+    private final Map<Integer, DepartmentColumnStore> pageCache =
+        new LinkedHashMap<Integer, DepartmentColumnStore>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, DepartmentColumnStore> eldest) {
+                return size() > MAX_CACHED_PAGES;
+            }
+        };
+    private final Set<Integer> pendingPages = new HashSet<>();
+
+    // Incremented on every reload so results of older loads are dropped
+    private int generation;
+    // Incremented whenever row positions shift so page reads in flight are dropped
+    private int pageGeneration;
+    private KeyLoader currentLoad;
+    // True until the last chunk of the current load has been appended; the worker is done before that
+    private boolean loading;
+    // Filter and order of the rows being shown
+    private DepartmentQuery query = DepartmentQuery.ALL;
+    private final List<PropertyChangeListener> loadListeners = new ArrayList<>();
+    // True when rows are in ID order and pages can be read with keyset paging
+    private boolean keysetPaging = true;
+    // Outside changes reported while the row list is streaming, by ID; applied when it completes
+    private final Map<Integer, DepartmentChangeMonitor.Change> changesDuringLoad = new LinkedHashMap<>();
+
+    /**
+     * Discard all rows and start streaming the whole table again in the background, in ID order.
+     * A load that is still running is cancelled.
+     * @return The background load, which reports progress (0-100) and completion as property changes
+     */
+    public SwingWorker<Integer, int[]> reload() {
+        return load(DepartmentQuery.ALL);
+    }
+
+    /**
+     * Replace the rows with those selected by a query, in its order.
+     * Results are streamed in the background like a reload.
+     * @param newQuery Filter, sort order and optional full-text search
+     * @return The background load; full-text searches report progress only when they complete
+     */
+    public SwingWorker<Integer, int[]> load(DepartmentQuery newQuery) {
+        query = newQuery;
+        return startLoad(new KeySource() {
+            @Override
+            public int count() throws SQLException {
+                // Counting full-text matches costs as much as finding them
+                return newQuery.getSearchText() == null ? DatabaseConnector.countDepartments(newQuery) : -1;
+            }
+
+            @Override
+            public void forEachId(IntPredicate visitor) throws SQLException {
+                DatabaseConnector.forEachDepartmentId(newQuery, visitor);
+            }
+        }, newQuery.isIdOrdered());
+    }
+
+    /**
+     * Clear the model and stream in a new row list
+     * @param source Query producing the row IDs in display order
+     * @param idOrdered true if the source returns IDs in ascending order
+     * @return The background load
+     */
+    private SwingWorker<Integer, int[]> startLoad(KeySource source, boolean idOrdered) {
+        if (currentLoad != null) {
+            currentLoad.cancel(true);
+        }
+        generation++;
+        pageGeneration++;
+        pageCache.clear();
+        pendingPages.clear();
+        changesDuringLoad.clear(); // Committed before the new load starts reading, so it will see them
+        stringPool.clear();
+        rowIds = new int[0];
+        rowCount = 0;
+        rowIndex = new IntIntHashMap(0);
+        keysetPaging = idOrdered;
+        loading = true;
+        fireTableDataChanged();
+
+        currentLoad = new KeyLoader(generation, source);
+        for (PropertyChangeListener listener : loadListeners) {
+            currentLoad.addPropertyChangeListener(listener);
+        }
+        LOADER.execute(currentLoad);
+        return currentLoad;
+    }
+
+    /**
+     * Get the query whose rows the model is showing
+     * @return Current query
+     */
+    public DepartmentQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Follow every background load, including ones restarted by the model itself.
+     * The listener receives the SwingWorker "progress" and "state" property changes.
+     * @param listener Listener to add
+     */
+    public void addLoadListener(PropertyChangeListener listener) {
+        loadListeners.add(listener);
+    }
+
+    /**
+     * Check whether the row list is still being streamed in
+     * @return true while a load is in progress
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Find the row showing a department
+     * @param id Department ID
+     * @return Row index, or -1 if the ID has not been loaded
+     */
+    public int findRow(int id) {
+        return rowIndex.get(id);
+    }
+
+    /**
+     * Add a department written by this application without reloading the list.
+     * In ID order the row is inserted at its sorted position if it passes the filter; lists in other
+     * orders and search results are left as they are until the next load.
+     * @param department The inserted department
+     */
+    public void departmentInserted(Department department) {
+        if (findRow(department.getId()) >= 0) {
+            departmentUpdated(department);
+            return;
+        }
+        if (!keysetPaging || !query.matches(department)) {
+            return;
+        }
+        if (isLoading()) {
+            restartLoad(); // The new row may or may not be in the stream already
+            return;
+        }
+        mergeRows(new int[0], 0, new int[] {department.getId()}, 1);
+    }
+
+    /**
+     * Refresh a department written by this application without reloading the list
+     * @param department The updated department
+     */
+    public void departmentUpdated(Department department) {
+        int row = findRow(department.getId());
+        if (row < 0) {
+            return;
+        }
+        DepartmentColumnStore page = pageCache.get(row / PAGE_SIZE);
+        int index = row % PAGE_SIZE;
+        if (page != null && index < page.size() && page.getId(index) == department.getId()) {
+            page.set(index, department.getSchId(), department.getDeptCode(), department.getName(),
+                department.getLocation(), department.getEmail(), department.getVersion());
+        } else {
+            invalidatePagesFrom(row / PAGE_SIZE);
+        }
+        fireTableRowsUpdated(row, row);
+    }
+
+    /**
+     * Remove a department deleted by this application without reloading the list
+     * @param id ID of the deleted department
+     */
+    public void departmentDeleted(int id) {
+        if (isLoading()) {
+            restartLoad(); // The stream may still deliver the deleted row
+            return;
+        }
+        mergeRows(new int[] {id}, 1, new int[0], 0);
+    }
+
+    /**
+     * Apply departments changed by other connections or processes, as reported by a
+     * {@link DepartmentChangeMonitor}. Rows that now pass the filter are added (in ID order),
+     * deleted rows and rows that no longer pass it are removed, and the others are refreshed.
+     * Search results cannot be re-checked here, so only their values are refreshed.
+     * The added and removed rows are merged into the list in one pass.
+     * Changes reported while the list is streaming in are held until it completes, since the
+     * stream may have been read before they were committed.
+     * @param changes Latest state of each changed department
+     */
+    public void applyChanges(List<DepartmentChangeMonitor.Change> changes) {
+        if (isLoading()) {
+            for (DepartmentChangeMonitor.Change change : changes) {
+                changesDuringLoad.remove(change.getId()); // Keep them in the order of the latest change
+                changesDuringLoad.put(change.getId(), change);
+            }
+            return;
+        }
+        if (changes.size() > MAX_INCREMENTAL_CHANGES) {
+            restartLoad();
+            return;
+        }
+        int[] removed = new int[changes.size()];
+        int removedCount = 0;
+        int[] inserted = new int[changes.size()];
+        int insertedCount = 0;
+        for (DepartmentChangeMonitor.Change change : changes) {
+            Department department = change.getDepartment();
+            if (department == null) {
+                removed[removedCount++] = change.getId();
+            } else if (query.getSearchText() != null) {
+                departmentUpdated(department);
+            } else if (!query.matches(department)) {
+                removed[removedCount++] = change.getId();
+            } else if (findRow(change.getId()) >= 0) {
+                departmentUpdated(department);
+            } else if (keysetPaging) {
+                inserted[insertedCount++] = change.getId();
+            }
+        }
+        Arrays.sort(inserted, 0, insertedCount);
+        mergeRows(removed, removedCount, inserted, insertedCount);
+    }
+
+    /**
+     * Load the rows of the current query again, keeping the filter and order
+     */
+    public void refresh() {
+        restartLoad();
+    }
+
+    /**
+     * Get the department shown in a row, if its page is loaded
+     * @param row Row index
+     * @return A copy of the row, or null if the page is still loading
+     */
+    public Department getDepartmentAt(int row) {
+        DepartmentColumnStore page = getPage(row);
+        return page != null && !page.isMissing(row % PAGE_SIZE) ? page.getDepartment(row % PAGE_SIZE) : null;
+    }
+    
+    /**
+     * Get the loaded page holding a row, requesting it and its neighbours if needed
+     * @param row Row index
+     * @return The page, or null if it is still loading or the row is past its end
+     */
+    private DepartmentColumnStore getPage(int row) {
+        int page = row / PAGE_SIZE;
+        DepartmentColumnStore rows = pageCache.get(page);
+        prefetchAround(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        return row % PAGE_SIZE < rows.size() ? rows : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    /**
+     * Column name, with an arrow on the column the rows are sorted by
+     */
+    @Override
+    public String getColumnName(int column) {
+        DepartmentQuery.SortColumn sort = query.getSortColumn();
+        if (sort != null && sort.ordinal() == column) {
+            return COLUMN_NAMES[column] + (query.isAscending() ? " \u25B2" : " \u25BC");
+        }
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Make table non-editable
+    }
+
+    /**
+     * ID, school ID and department code are Integer columns; see {@link #getIntAt}
+     */
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column <= 2 ? Integer.class : String.class;
+    }
+
+    /**
+     * Check whether a cell's value is available yet, requesting its page if not
+     * @param row Row index
+     * @param column Column index
+     * @return true if the ID is known or the row's page is loaded
+     */
+    public boolean hasValueAt(int row, int column) {
+        if (column == 0) {
+            return true;
+        }
+        DepartmentColumnStore page = getPage(row);
+        return page != null && !page.isMissing(row % PAGE_SIZE);
+    }
+
+    /**
+     * Read an Integer column as a primitive, so renderers can paint it without boxing
+     * @param row Row index, whose value must be available ({@link #hasValueAt})
+     * @param column 0 (ID), 1 (school ID) or 2 (department code)
+     * @return Cell value
+     */
+    public int getIntAt(int row, int column) {
+        if (column == 0) {
+            return rowIds[row];
+        }
+        DepartmentColumnStore page = pageCache.get(row / PAGE_SIZE);
+        return column == 1 ? page.getSchId(row % PAGE_SIZE) : page.getDeptCode(row % PAGE_SIZE);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        if (column == 0) {
+            return rowIds[row]; // Known before the page arrives
+        }
+        DepartmentColumnStore page = getPage(row);
+        int index = row % PAGE_SIZE;
+        if (page == null || page.isMissing(index)) {
+            return null;
+        }
+        switch (column) {
+            case 1: return page.getSchId(index);
+            case 2: return page.getDeptCode(index);
+            case 3: return page.getName(index);
+            case 4: return page.getLocation(index);
+            case 5: return page.getEmail(index);
+            default: return null;
+        }
+    }
+
+    /**
+     * Queue loads for the pages either side of the one being displayed
+     * @param page Page currently being read
+     */
+    private void prefetchAround(int page) {
+        int pageCount = (rowCount + PAGE_SIZE - 1) / PAGE_SIZE;
+        for (int p = page - PREFETCH_PAGES; p <= page + PREFETCH_PAGES; p++) {
+            if (p != page && p >= 0 && p < pageCount && !pageCache.containsKey(p)) {
+                requestPage(p);
+            }
+        }
+    }
+
+    /**
+     * Start loading a page in the background unless it is already on its way
+     * @param page Page to load
+     */
+    private void requestPage(int page) {
+        int firstRow = page * PAGE_SIZE;
+        if (firstRow >= rowCount || !pendingPages.add(page)) {
+            return;
+        }
+
+        int requestGeneration = pageGeneration;
+        boolean keyset = keysetPaging;
+        DepartmentQuery pageQuery = query;
+        // Keyset paging: the page starts after the last ID of the previous page
+        long afterId = page == 0 ? Long.MIN_VALUE : rowIds[firstRow - 1];
+        // Otherwise the page is read by its IDs, copied off the EDT-owned array
+        int[] pageIds = keyset ? null : Arrays.copyOfRange(rowIds, firstRow, Math.min(rowCount, firstRow + PAGE_SIZE));
+
+        LOADER.execute(() -> {
+            DepartmentColumnStore rows = new DepartmentColumnStore(PAGE_SIZE, stringPool);
+            try {
+                if (keyset) {
+                    DatabaseConnector.getDepartmentPage(pageQuery, afterId, PAGE_SIZE, rows);
+                } else {
+                    DatabaseConnector.getDepartmentsByIds(pageIds, 0, pageIds.length, rows);
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                rows = null;
+            }
+            DepartmentColumnStore loaded = rows;
+            int requestedRows = keyset ? PAGE_SIZE : pageIds.length;
+            SwingUtilities.invokeLater(() -> pageLoaded(requestGeneration, page, loaded, requestedRows, keyset));
+        });
+    }
+
+    /**
+     * Store a loaded page and repaint its rows.
+     * Rows are placed by ID, since other connections may have added or removed departments in the
+     * page's range since the row list was read: IDs that did not come back are left empty and, once
+     * known to be gone, dropped from the list; IDs that are new to the list are added.
+     * @param requestGeneration Generation the page was requested in
+     * @param page Page index
+     * @param rows Rows of the page, or null if the query failed
+     * @param requestedRows Number of rows the page was requested for
+     * @param keyset true if the page was read with keyset paging rather than by its IDs
+     */
+    private void pageLoaded(int requestGeneration, int page, DepartmentColumnStore rows, int requestedRows, boolean keyset) {
+        if (requestGeneration != pageGeneration) {
+            return; // Superseded by a reload or a row shift
+        }
+        pendingPages.remove(page);
+        if (rows == null) {
+            return;
+        }
+
+        int firstRow = page * PAGE_SIZE;
+        int lastRow = Math.min(rowCount, firstRow + PAGE_SIZE) - 1;
+        if (lastRow - firstRow + 1 > requestedRows) {
+            // More IDs of this page arrived while it was being read
+            requestPage(page);
+            return;
+        }
+        if (lastRow < firstRow) {
+            return;
+        }
+
+        int[] slots = new int[lastRow - firstRow + 1];
+        Arrays.fill(slots, -1);
+        int[] added = new int[rows.size()];
+        int addedCount = 0;
+        boolean inPlace = rows.size() == slots.length;
+        for (int i = 0; i < rows.size(); i++) {
+            int id = rows.getId(i);
+            int row = rowIndex.get(id);
+            if (row >= firstRow && row <= lastRow) {
+                slots[row - firstRow] = i;
+                inPlace &= row - firstRow == i;
+            } else if (row < 0 && keyset && !(loading && id > rowIds[rowCount - 1])) {
+                // Inserted elsewhere; IDs past the end of a running load are still to be streamed
+                added[addedCount++] = id;
+            }
+        }
+        if (inPlace) {
+            pageCache.put(page, rows);
+            fireTableRowsUpdated(firstRow, lastRow);
+            return;
+        }
+
+        // A keyset read covers the IDs up to its last row, or all of them if it came back short
+        boolean complete = !keyset || rows.size() < PAGE_SIZE;
+        int coveredId = rows.size() > 0 ? rows.getId(rows.size() - 1) : Integer.MIN_VALUE;
+        int[] stale = new int[slots.length];
+        int staleCount = 0;
+        DepartmentColumnStore aligned = new DepartmentColumnStore(slots.length, stringPool);
+        for (int i = 0; i < slots.length; i++) {
+            int j = slots[i];
+            if (j >= 0) {
+                aligned.add(rows.getId(j), rows.getSchId(j), rows.getDeptCode(j), rows.getName(j),
+                    rows.getLocation(j), rows.getEmail(j), rows.getVersion(j));
+            } else {
+                aligned.addMissing(rowIds[firstRow + i]);
+                if (complete || rowIds[firstRow + i] < coveredId) {
+                    stale[staleCount++] = rowIds[firstRow + i];
+                }
+            }
+        }
+        pageCache.put(page, aligned);
+        fireTableRowsUpdated(firstRow, lastRow);
+        if (staleCount > 0 || addedCount > 0) {
+            // Pages from the first shifted row on are read again
+            mergeRows(stale, staleCount, added, addedCount);
+        }
+    }
+
+    /**
+     * Run the current load again from the start
+     */
+    private void restartLoad() {
+        load(query);
+    }
+
+    /**
+     * Remove and insert rows in one pass over the row list, so a batch of changes costs
+     * a single shift and reindex of the rows after the first one affected
+     * @param removed IDs to remove; IDs that are not shown are ignored
+     * @param removedCount Number of entries used in removed
+     * @param inserted IDs to insert, ascending and not already shown; only valid in ID order
+     * @param insertedCount Number of entries used in inserted
+     */
+    private void mergeRows(int[] removed, int removedCount, int[] inserted, int insertedCount) {
+        int firstRow = rowCount;
+        IntIntHashMap removedRows = new IntIntHashMap(removedCount);
+        for (int i = 0; i < removedCount; i++) {
+            int row = rowIndex.remove(removed[i]);
+            if (row >= 0) {
+                removedRows.put(removed[i], row);
+                firstRow = Math.min(firstRow, row);
+            }
+        }
+        if (insertedCount > 0) {
+            int row = Arrays.binarySearch(rowIds, 0, rowCount, inserted[0]);
+            firstRow = Math.min(firstRow, row >= 0 ? row : -(row + 1));
+        }
+        if (removedRows.size() == 0 && insertedCount == 0) {
+            return;
+        }
+
+        int oldCount = rowCount;
+        int[] tail = Arrays.copyOfRange(rowIds, firstRow, rowCount);
+        int newCount = rowCount - removedRows.size() + insertedCount;
+        if (newCount > rowIds.length) {
+            rowIds = Arrays.copyOf(rowIds, Math.max(newCount, rowIds.length * 2));
+        }
+        int row = firstRow;
+        int next = 0;
+        for (int id : tail) {
+            while (next < insertedCount && inserted[next] < id) {
+                rowIds[row++] = inserted[next++];
+            }
+            if (removedRows.get(id) < 0) {
+                rowIds[row++] = id;
+            }
+        }
+        while (next < insertedCount) {
+            rowIds[row++] = inserted[next++];
+        }
+        rowCount = row;
+        reindexFrom(firstRow);
+        invalidatePagesFrom(firstRow / PAGE_SIZE);
+
+        if (removedRows.size() + insertedCount == 1) {
+            // A single row: exact event, so the selection moves with the rows
+            if (insertedCount == 1) {
+                fireTableRowsInserted(firstRow, firstRow);
+            } else {
+                fireTableRowsDeleted(firstRow, firstRow);
+            }
+            return;
+        }
+        if (Math.min(oldCount, rowCount) > firstRow) {
+            fireTableRowsUpdated(firstRow, Math.min(oldCount, rowCount) - 1);
+        }
+        if (rowCount > oldCount) {
+            fireTableRowsInserted(oldCount, rowCount - 1);
+        } else if (rowCount < oldCount) {
+            fireTableRowsDeleted(rowCount, oldCount - 1);
+        }
+    }
+
+    /**
+     * Point the ID index at the current position of every row from a given row on
+     * @param firstRow First row whose position changed
+     */
+    private void reindexFrom(int firstRow) {
+        for (int row = firstRow; row < rowCount; row++) {
+            rowIndex.put(rowIds[row], row);
+        }
+    }
+
+    /**
+     * Drop cached and in-flight pages whose rows have shifted
+     * @param firstPage First page affected by a change
+     */
+    private void invalidatePagesFrom(int firstPage) {
+        pageCache.keySet().removeIf(page -> page >= firstPage);
+        if (!pendingPages.isEmpty()) {
+            // Results of page reads already running would land at the old positions
+            pageGeneration++;
+            pendingPages.clear();
+        }
+    }
+
+    /**
+     * Append a chunk of streamed IDs as new rows
+     * @param loadGeneration Generation the chunk belongs to
+     * @param ids IDs in display order
+     */
+    private void appendRows(int loadGeneration, int[] ids) {
+        if (loadGeneration != generation || ids.length == 0) {
+            return;
+        }
+        if (rowCount + ids.length > rowIds.length) {
+            rowIds = Arrays.copyOf(rowIds, Math.max(rowCount + ids.length, rowIds.length * 2));
+        }
+        System.arraycopy(ids, 0, rowIds, rowCount, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            rowIndex.put(ids[i], rowCount + i);
+        }
+        int firstNewRow = rowCount;
+        rowCount += ids.length;
+        if (firstNewRow % PAGE_SIZE != 0) {
+            // A page only holds the IDs known when it was read
+            pageCache.remove(firstNewRow / PAGE_SIZE);
+        }
+        fireTableRowsInserted(firstNewRow, rowCount - 1);
+    }
+
+    /**
+     * Mark the row list complete once its last chunk is in, and apply the changes held back meanwhile
+     * @param loadGeneration Generation of the load that ended
+     */
+    private void loadFinished(int loadGeneration) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        loading = false;
+        if (!changesDuringLoad.isEmpty()) {
+            List<DepartmentChangeMonitor.Change> changes = new ArrayList<>(changesDuringLoad.values());
+            changesDuringLoad.clear();
+            applyChanges(changes);
+        }
+    }
+
+    /**
+     * Query that produces the ordered row IDs for a load
+     */
+    private interface KeySource {
+        /**
+         * @return Expected number of rows, or -1 if unknown
+         * @throws SQLException if the query fails
+         */
+        int count() throws SQLException;
+
+        /**
+         * Stream row IDs in display order
+         * @param visitor Callback for each ID; returning false stops the scan
+         * @throws SQLException if the query fails
+         */
+        void forEachId(IntPredicate visitor) throws SQLException;
+    }
+
+    /**
+     * Streams the ordered ID list in the background and publishes it in chunks
+     */
+    private class KeyLoader extends SwingWorker<Integer, int[]> {
+        private final int loadGeneration;
+        private final KeySource source;
+        private int[] chunk = new int[PAGE_SIZE]; // First chunk is one page so the first screen fills immediately
+        private int chunkFill;
+        private int loaded;
+
+        KeyLoader(int loadGeneration, KeySource source) {
+            this.loadGeneration = loadGeneration;
+            this.source = source;
+        }
+
+        @Override
+        protected Integer doInBackground() throws Exception {
+            long start = System.nanoTime();
+            try {
+                int count = loadKeys();
+                DatabaseMetrics.LIST_LOAD.record(start, count);
+                return count;
+            } catch (Exception e) {
+                DatabaseMetrics.LIST_LOAD.recordError(start);
+                throw e;
+            } finally {
+                // Chunks reach process() after the worker is done, so the end is marked in the stream
+                publish(END_OF_KEYS);
+            }
+        }
+
+        private int loadKeys() throws Exception {
+            int total = source.count();
+
+            source.forEachId(id -> {
+                if (isCancelled()) {
+                    return false;
+                }
+                chunk[chunkFill++] = id;
+                loaded++;
+                if (chunkFill == chunk.length) {
+                    publish(chunk);
+                    chunk = new int[KEY_CHUNK_SIZE];
+                    chunkFill = 0;
+                    if (total > 0) {
+                        setProgress(Math.min(100, (int) (loaded * 100L / total)));
+                    }
+                }
+                return true;
+            });
+
+            if (!isCancelled() && chunkFill > 0) {
+                publish(Arrays.copyOf(chunk, chunkFill));
+            }
+            setProgress(100);
+            return loaded;
+        }
+
+        @Override
+        protected void process(List<int[]> chunks) {
+            for (int[] ids : chunks) {
+                if (ids == END_OF_KEYS) {
+                    loadFinished(loadGeneration);
+                } else {
+                    appendRows(loadGeneration, ids);
+                }
+            }
+        }
+    }
+}
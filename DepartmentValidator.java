@@ -0,0 +1,66 @@
+/**
+ * Validation rules for department input, shared by the edit form and bulk import
+ */
+public class DepartmentValidator {
+    private DepartmentValidator() {
+    }
+
+    /**
+     * Check that required fields are filled in
+     * @param id ID text (may be null or empty unless requireId is set)
+     * @param schId School ID text
+     * @param deptCode Department code text
+     * @param name Department name
+     * @param requireId true if the ID is required
+     * @return Error message, or null if all required fields are present
+     */
+    public static String checkRequired(String id, String schId, String deptCode, String name, boolean requireId) {
+        // For update and delete, ID is required
+        if (requireId && isBlank(id)) {
+            return "Please enter the ID of the department";
+        }
+
+        // Check required fields for insert and update
+        if (isBlank(schId) || isBlank(deptCode) || isBlank(name)) {
+            return "School ID, Department Code and Name are required";
+        }
+        return null;
+    }
+
+    /**
+     * Check that the numeric fields that are filled in are valid integers
+     * @param id ID text (may be null or empty)
+     * @param schId School ID text (may be null or empty)
+     * @param deptCode Department code text (may be null or empty)
+     * @return Error message, or null if every present numeric field parses
+     */
+    public static String checkNumeric(String id, String schId, String deptCode) {
+        try {
+            if (!isBlank(schId)) {
+                Integer.parseInt(schId.trim());
+            }
+            if (!isBlank(deptCode)) {
+                Integer.parseInt(deptCode.trim());
+            }
+            if (!isBlank(id)) {
+                Integer.parseInt(id.trim());
+            }
+        } catch (NumberFormatException e) {
+            return "School ID, Department Code and ID must be numeric";
+        }
+        return null;
+    }
+
+    /**
+     * Apply all rules
+     * @return First error message, or null if the input is valid
+     */
+    public static String validate(String id, String schId, String deptCode, String name, boolean requireId) {
+        String error = checkRequired(id, schId, deptCode, name, requireId);
+        return error != null ? error : checkNumeric(id, schId, deptCode);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
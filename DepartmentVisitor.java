@@ -0,0 +1,15 @@
+import java.sql.SQLException;
+
+/**
+ * Callback for streaming department rows out of the database one at a time
+ */
+@FunctionalInterface
+public interface DepartmentVisitor {
+    /**
+     * Called for each department in query order
+     * @param department The current row
+     * @return true to continue with the next row, false to stop early
+     * @throws SQLException to abort the query
+     */
+    boolean visit(Department department) throws SQLException;
+}
@@ -0,0 +1,307 @@
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind queue for single-row department writes.
+ * <p>
+ * Callers enqueue a mutation and get a future back immediately. One writer thread takes
+ * pending mutations and applies up to batchSize of them in a single transaction, waiting up
+ * to the linger time for more to arrive, so many writes share one commit (and one fsync).
+ * Each mutation runs under its own savepoint: a failing mutation fails only its own future.
+ * Futures complete after the transaction commits, on the writer thread.
+ */
+public class DepartmentWriteQueue {
+    /**
+     * A queued write and the future that receives its result
+     */
+    private abstract static class Mutation<T> {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+        // ID of the row written, set by apply; its cache entry is dropped after the commit
+        int touchedId;
+
+        abstract T apply(Connection conn) throws SQLException;
+    }
+
+    // Tells the writer thread to stop once everything before it is committed
+    private static final Mutation<Void> STOP = new Mutation<Void>() {
+        @Override
+        Void apply(Connection conn) {
+            return null;
+        }
+    };
+
+    private final int batchSize;
+    private final long lingerNanos;
+    private final BlockingQueue<Mutation<?>> pending;
+    private final Thread writer;
+    // Set and checked under the queue's lock, so no mutation can be queued behind STOP
+    private boolean closed;
+
+    // Statistics
+    private final AtomicLong committedTransactions = new AtomicLong();
+    private final AtomicLong committedMutations = new AtomicLong();
+    private final AtomicLong failedMutations = new AtomicLong();
+
+    /**
+     * Create the queue and start its writer thread
+     * @param batchSize Maximum mutations per transaction
+     * @param lingerMillis How long the writer waits for more mutations before committing
+     * @param capacity Maximum number of pending mutations
+     */
+    public DepartmentWriteQueue(int batchSize, long lingerMillis, int capacity) {
+        if (batchSize < 1 || lingerMillis < 0 || capacity < 1) {
+            throw new IllegalArgumentException("Invalid write queue settings: batchSize=" + batchSize
+                + ", linger=" + lingerMillis + ", capacity=" + capacity);
+        }
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.pending = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::run, "department-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queue an insert. A department ID of 0 or less lets the database assign one.
+     * If the ID is already taken, the future fails with a {@link DepartmentConflictException}.
+     * @param department Department to insert
+     * @return Future with the department as stored (including its ID and version), or null if no row was inserted
+     */
+    public CompletableFuture<Department> insert(Department department) {
+        return submit(new Mutation<Department>() {
+            @Override
+            Department apply(Connection conn) throws SQLException {
+                if (department.getId() > 0) {
+                    touchedId = department.getId();
+                    DatabaseConnector.insertDepartmentWithId(conn, department.getId(), department.getSchId(),
+                        department.getDeptCode(), department.getName(), department.getLocation(), department.getEmail());
+                    // insertDepartmentWithId stores empty optional fields as NULL
+                    return new Department(department.getId(), department.getSchId(), department.getDeptCode(),
+                        department.getName(), emptyToNull(department.getLocation()), emptyToNull(department.getEmail()), 1);
+                }
+                int id = DatabaseConnector.insertDepartmentReturningId(conn, department.getSchId(), department.getDeptCode(),
+                    department.getName(), department.getLocation(), department.getEmail());
+                touchedId = id;
+                return id > 0 ? new Department(id, department.getSchId(), department.getDeptCode(),
+                    department.getName(), department.getLocation(), department.getEmail(), 1) : null;
+            }
+        });
+    }
+
+    /**
+     * Queue an update of all columns of a department. If the department has a version and the
+     * stored row has moved on, the future fails with a {@link DepartmentConflictException}.
+     * @param department New values, matched by ID
+     * @return Future with the department as stored (including its new version), or null if it does not exist
+     */
+    public CompletableFuture<Department> update(Department department) {
+        return submit(new Mutation<Department>() {
+            @Override
+            Department apply(Connection conn) throws SQLException {
+                touchedId = department.getId();
+                return DatabaseConnector.updateDepartment(conn, department);
+            }
+        });
+    }
+
+    /**
+     * Queue a delete regardless of the department's version
+     * @param id Department ID
+     * @return Future with the number of rows deleted
+     */
+    public CompletableFuture<Integer> delete(int id) {
+        return delete(id, 0);
+    }
+
+    /**
+     * Queue a delete of the version of a department the caller has seen.
+     * If the stored row has moved on, the future fails with a {@link DepartmentConflictException}.
+     * @param id Department ID
+     * @param expectedVersion Version the department was read at, or 0 to delete whatever the version
+     * @return Future with the number of rows deleted
+     */
+    public CompletableFuture<Integer> delete(int id, long expectedVersion) {
+        return submit(new Mutation<Integer>() {
+            @Override
+            Integer apply(Connection conn) throws SQLException {
+                touchedId = id;
+                return DatabaseConnector.deleteDepartment(conn, id, expectedVersion);
+            }
+        });
+    }
+
+    /**
+     * Number of mutations waiting to be written
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getCommittedTransactions() {
+        return committedTransactions.get();
+    }
+
+    public long getCommittedMutations() {
+        return committedMutations.get();
+    }
+
+    public long getFailedMutations() {
+        return failedMutations.get();
+    }
+
+    /**
+     * Stop accepting mutations, commit the ones already queued and stop the writer thread
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            pending.put(STOP);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Mutation<T> mutation) {
+        boolean queued;
+        synchronized (this) {
+            if (closed) {
+                mutation.future.completeExceptionally(new RejectedExecutionException("Write queue is closed"));
+                return mutation.future;
+            }
+            queued = pending.offer(mutation);
+        }
+        if (!queued) {
+            mutation.future.completeExceptionally(new RejectedExecutionException(
+                "Too many pending writes (" + pending.size() + "); please try again"));
+        }
+        return mutation.future;
+    }
+
+    /**
+     * Writer thread: gather a batch, commit it, repeat until stopped
+     */
+    private void run() {
+        List<Mutation<?>> batch = new ArrayList<>(batchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(pending.take());
+                pending.drainTo(batch, batchSize - batch.size());
+                // Linger briefly so writes arriving together share the commit
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize && !batch.contains(STOP)) {
+                    long remaining = deadline - System.nanoTime();
+                    Mutation<?> next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    pending.drainTo(batch, batchSize - batch.size());
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            if (batch.remove(STOP)) {
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+        // Anything still queued after a stop or interrupt will not be written; nothing can be queued after this
+        synchronized (this) {
+            closed = true;
+        }
+        Mutation<?> left;
+        while ((left = pending.poll()) != null) {
+            left.future.completeExceptionally(new RejectedExecutionException("Write queue is closed"));
+        }
+    }
+
+    /**
+     * Apply a batch in one transaction and complete its futures
+     */
+    private void commit(List<Mutation<?>> batch) {
+        long start = System.nanoTime();
+        Throwable[] errors = new Throwable[batch.size()];
+        try (Connection conn = DatabaseConnector.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int i = 0; i < batch.size(); i++) {
+                    Mutation<?> mutation = batch.get(i);
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        applyTo(mutation, conn);
+                        conn.releaseSavepoint(savepoint);
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback(savepoint);
+                        errors[i] = e;
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            DatabaseMetrics.WRITE_QUEUE_COMMIT.recordError(start);
+            e.printStackTrace();
+            // Nothing in the batch was committed
+            for (Mutation<?> mutation : batch) {
+                mutation.future.completeExceptionally(e);
+            }
+            failedMutations.addAndGet(batch.size());
+            return;
+        }
+
+        DatabaseMetrics.WRITE_QUEUE_COMMIT.record(start, batch.size());
+        committedTransactions.incrementAndGet();
+        for (int i = 0; i < batch.size(); i++) {
+            // A conflict usually means the cached copy is stale too
+            boolean changed = errors[i] == null || errors[i] instanceof DepartmentConflictException;
+            if (changed && batch.get(i).touchedId > 0) {
+                DatabaseConnector.departmentChanged(batch.get(i).touchedId);
+            }
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (errors[i] != null) {
+                failedMutations.incrementAndGet();
+                batch.get(i).future.completeExceptionally(errors[i]);
+            } else {
+                committedMutations.incrementAndGet();
+                complete(batch.get(i));
+            }
+        }
+    }
+
+    private static <T> void applyTo(Mutation<T> mutation, Connection conn) throws SQLException {
+        mutation.result = mutation.apply(conn);
+    }
+
+    private static <T> void complete(Mutation<T> mutation) {
+        mutation.future.complete(mutation.result);
+    }
+
+    private static String emptyToNull(String value) {
+        return value != null && !value.isEmpty() ? value : null;
+    }
+}
@@ -0,0 +1,146 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Window showing the database metrics, refreshed every second while open
+ */
+public class DiagnosticsWindow extends JDialog {
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final OperationTableModel operationModel = new OperationTableModel();
+    private final JTextArea resourceArea = new JTextArea(5, 60);
+    private final Timer refreshTimer;
+
+    /**
+     * Constructor for the diagnostics window
+     * @param parent Parent window reference
+     */
+    public DiagnosticsWindow(JFrame parent) {
+        super(parent, "Diagnostics", false);
+        setSize(900, 500);
+        setLocationRelativeTo(parent);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+        
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        
+        JTable table = new JTable(operationModel);
+        table.setAutoCreateRowSorter(true);
+        mainPanel.add(new JScrollPane(table), BorderLayout.CENTER);
+        
+        resourceArea.setEditable(false);
+        resourceArea.setLineWrap(true);
+        resourceArea.setWrapStyleWord(true);
+        resourceArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        
+        JPanel bottomPanel = new JPanel(new BorderLayout(5, 5));
+        bottomPanel.add(new JScrollPane(resourceArea), BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            for (OperationMetrics operation : DatabaseMetrics.all()) {
+                operation.reset();
+            }
+            refresh();
+        });
+        buttonPanel.add(resetButton);
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        buttonPanel.add(closeButton);
+        bottomPanel.add(buttonPanel, BorderLayout.SOUTH);
+        mainPanel.add(bottomPanel, BorderLayout.SOUTH);
+        
+        add(mainPanel);
+        
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+        refresh();
+        refreshTimer.start();
+        setVisible(true);
+    }
+    
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        super.dispose();
+    }
+    
+    /**
+     * Read a fresh snapshot of every counter
+     */
+    private void refresh() {
+        List<OperationMetrics.Statistics> statistics = new ArrayList<>();
+        for (OperationMetrics operation : DatabaseMetrics.all()) {
+            statistics.add(operation.getStatistics());
+        }
+        operationModel.setStatistics(statistics);
+        
+        ConnectionPool.Statistics pool = DatabaseConnector.getPoolStatistics();
+        resourceArea.setText("Connection pool: " + (pool != null ? pool : "not started")
+            + "\nDepartment cache: " + DatabaseConnector.getCacheStatistics()
+            + "\nWrite queue: " + DatabaseConnector.getWriteQueuePending() + " pending");
+    }
+    
+    /**
+     * One row per operation; times in milliseconds
+     */
+    private static class OperationTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Operation", "Calls", "Errors", "Rows", "Mean (ms)", "p50 (ms)", "p99 (ms)", "Max (ms)"};
+        private List<OperationMetrics.Statistics> rows = new ArrayList<>();
+
+        void setStatistics(List<OperationMetrics.Statistics> statistics) {
+            this.rows = statistics;
+            // Same operations in the same order every time, so only the values change
+            if (getRowCount() > 0) {
+                fireTableRowsUpdated(0, getRowCount() - 1);
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            switch (column) {
+                case 0: return String.class;
+                case 1: case 2: case 3: return Long.class;
+                default: return Double.class;
+            }
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            OperationMetrics.Statistics s = rows.get(row);
+            switch (column) {
+                case 0: return s.getName();
+                case 1: return s.getCalls();
+                case 2: return s.getErrors();
+                case 3: return s.getRows();
+                case 4: return round(s.getMeanMillis());
+                case 5: return round(s.getP50Millis());
+                case 6: return round(s.getP99Millis());
+                default: return round(s.getMaxMillis());
+            }
+        }
+
+        private static double round(double millis) {
+            return Math.round(millis * 1000) / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from int keys to non-negative int values.
+ * Keys and values live in primitive arrays, so lookups and updates never box or allocate.
+ */
+public class IntIntHashMap {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    // Value + 1 for each slot; 0 marks an empty slot
+    private int[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    /**
+     * Create an empty map
+     * @param expectedSize Number of entries to size the table for
+     */
+    public IntIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Look up the value for a key
+     * @param key Key to find
+     * @return The value, or -1 if the key is absent
+     */
+    public int get(int key) {
+        int slot = hash(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Set the value for a key
+     * @param key Key to set
+     * @param value Non-negative value
+     */
+    public void put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        int slot = hash(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                values[slot] = value + 1;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value + 1;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Remove a key
+     * @param key Key to remove
+     * @return The removed value, or -1 if the key was absent
+     */
+    public int remove(int key) {
+        int slot = hash(key) & mask;
+        while (values[slot] != 0) {
+            if (keys[slot] == key) {
+                int removed = values[slot] - 1;
+                deleteSlot(slot);
+                size--;
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Number of entries
+     * @return Map size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all entries, keeping the table allocated
+     */
+    public void clear() {
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * Close the gap left by a removed entry by shifting later entries of its probe chain back
+     * @param slot Slot being emptied
+     */
+    private void deleteSlot(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (values[next] != 0) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry if its home slot is not cyclically within (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[gap] = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                put(oldKeys[i], oldValues[i] - 1);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,6 +1,8 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Login window for user authentication
@@ -8,6 +10,7 @@ import java.awt.event.*;
 public class LoginWindow extends JFrame {
     private JTextField usernameField;
     private JPasswordField passwordField;
+    private JButton loginButton;
     
     /**
      * Constructor for login window
@@ -38,7 +41,7 @@ public class LoginWindow extends JFrame {
         // Button panel
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
         
-        JButton loginButton = new JButton("Login");
+        loginButton = new JButton("Login");
         JButton registerButton = new JButton("Register");
         
         buttonPanel.add(loginButton);
@@ -47,19 +50,7 @@ public class LoginWindow extends JFrame {
         mainPanel.add(buttonPanel, BorderLayout.SOUTH);
         
         // Add action listener for login button
-        loginButton.addActionListener(e -> {
-            String username = usernameField.getText();
-            String password = new String(passwordField.getPassword());
-            
-            if (DatabaseConnector.validateLogin(username, password)) {
-                dispose(); // Close login window
-                SwingUtilities.invokeLater(() -> new DepartmentListWindow());
-            } else {
-                JOptionPane.showMessageDialog(LoginWindow.this, 
-                    "Invalid username or password!", 
-                    "Login Failed", JOptionPane.ERROR_MESSAGE);
-            }
-        });
+        loginButton.addActionListener(e -> login());
         
         // Add action listener for register button
         registerButton.addActionListener(e -> {
@@ -70,6 +61,50 @@ public class LoginWindow extends JFrame {
         setVisible(true);
     }
     
+    /**
+     * Verify the entered credentials in the background; password hashing is slow by design
+     */
+    private void login() {
+        String username = usernameField.getText();
+        char[] password = passwordField.getPassword();
+        
+        loginButton.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        
+        new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() throws Exception {
+                try {
+                    return DatabaseConnector.authenticate(username, password);
+                } finally {
+                    Arrays.fill(password, '\0');
+                }
+            }
+            
+            @Override
+            protected void done() {
+                loginButton.setEnabled(true);
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    if (get()) {
+                        dispose(); // Close login window
+                        new DepartmentListWindow();
+                    } else {
+                        JOptionPane.showMessageDialog(LoginWindow.this, 
+                            "Invalid username or password!", 
+                            "Login Failed", JOptionPane.ERROR_MESSAGE);
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(LoginWindow.this, 
+                        "Database error: " + cause.getMessage(), 
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+    
     /**
      * Show registration request dialog
      */
@@ -0,0 +1,188 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counts, error counts, rows and a latency histogram for one kind of operation.
+ * <p>
+ * Recording only increments counters, so it never allocates and is safe from any thread.
+ * Latencies go into fixed buckets: four per power of two from 1 microsecond to about 70 seconds,
+ * so percentiles read back from them are within about 20% of the true value.
+ * Typical use:
+ * <pre>
+ * long start = System.nanoTime();
+ * try {
+ *     int rows = ...;
+ *     metrics.record(start, rows);
+ * } catch (SQLException e) {
+ *     metrics.recordError(start);
+ *     throw e;
+ * }
+ * </pre>
+ */
+public class OperationMetrics {
+    // Bucket 0 holds everything under 2^MIN_SHIFT ns, the last bucket everything from 2^MAX_SHIFT ns
+    private static final int MIN_SHIFT = 10;
+    private static final int MAX_SHIFT = 36;
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (MAX_SHIFT - MIN_SHIFT) * SUB_BUCKETS + 2;
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Record a successful call
+     * @param startNanos System.nanoTime() taken when the call started
+     * @param rowCount Rows returned or written
+     */
+    public void record(long startNanos, long rowCount) {
+        recordLatency(System.nanoTime() - startNanos);
+        rows.add(rowCount);
+    }
+
+    /**
+     * Record a call that ended with an exception
+     * @param startNanos System.nanoTime() taken when the call started
+     */
+    public void recordError(long startNanos) {
+        recordLatency(System.nanoTime() - startNanos);
+        errors.increment();
+    }
+
+    private void recordLatency(long nanos) {
+        calls.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        buckets.incrementAndGet(bucketOf(nanos));
+    }
+
+    /**
+     * Clear all counters. Calls recorded while resetting may be partly kept.
+     */
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        rows.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+    }
+
+    /**
+     * Take a snapshot of the counters
+     * @return Current values
+     */
+    public Statistics getStatistics() {
+        long[] counts = new long[BUCKETS];
+        long histogramTotal = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            histogramTotal += counts[i];
+        }
+        long max = maxNanos.get();
+        return new Statistics(name, calls.sum(), errors.sum(), rows.sum(), totalNanos.sum(),
+            percentile(counts, histogramTotal, 0.50, max), percentile(counts, histogramTotal, 0.99, max), max);
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < (1L << MIN_SHIFT)) {
+            return 0;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos);
+        if (shift >= MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (shift - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return 1 + (shift - MIN_SHIFT) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Upper bound of a bucket in nanoseconds
+     */
+    static long bucketLimit(int bucket) {
+        if (bucket == 0) {
+            return 1L << MIN_SHIFT;
+        }
+        if (bucket >= BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        int shift = MIN_SHIFT + (bucket - 1) / SUB_BUCKETS;
+        int sub = (bucket - 1) % SUB_BUCKETS;
+        return (1L << shift) + ((long) (sub + 1) << (shift - SUB_BUCKET_BITS));
+    }
+
+    /**
+     * Read a percentile from the histogram: the upper bound of the bucket it falls in, capped at the maximum
+     */
+    private static long percentile(long[] counts, long total, double fraction, long max) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketLimit(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Snapshot of an operation's counters; times are in milliseconds
+     */
+    public static class Statistics {
+        private final String name;
+        private final long calls;
+        private final long errors;
+        private final long rows;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        private Statistics(String name, long calls, long errors, long rows, long totalNanos,
+                           long p50Nanos, long p99Nanos, long maxNanos) {
+            this.name = name;
+            this.calls = calls;
+            this.errors = errors;
+            this.rows = rows;
+            this.meanMillis = calls == 0 ? 0 : totalNanos / 1e6 / calls;
+            this.p50Millis = p50Nanos / 1e6;
+            this.p99Millis = p99Nanos / 1e6;
+            this.maxMillis = maxNanos / 1e6;
+        }
+
+        public String getName() { return name; }
+        public long getCalls() { return calls; }
+        public long getErrors() { return errors; }
+        public long getRows() { return rows; }
+        public double getMeanMillis() { return meanMillis; }
+        public double getP50Millis() { return p50Millis; }
+        public double getP99Millis() { return p99Millis; }
+        public double getMaxMillis() { return maxMillis; }
+
+        @Override
+        public String toString() {
+            return String.format("%s: calls=%d, errors=%d, rows=%d, mean=%.3f ms, p50=%.3f ms, p99=%.3f ms, max=%.3f ms",
+                name, calls, errors, rows, meanMillis, p50Millis, p99Millis, maxMillis);
+        }
+    }
+}
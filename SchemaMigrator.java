@@ -0,0 +1,234 @@
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings the database schema up to date.
+ * <p>
+ * Schema changes are numbered steps. The versions already applied are recorded in the
+ * schema_version table; each pending step runs in its own transaction together with its
+ * schema_version row, so a failed step leaves no trace and is retried on the next start.
+ * Steps use IF NOT EXISTS (or check first), so re-running one against a database that was
+ * set up by hand is harmless.
+ */
+public class SchemaMigrator {
+    /**
+     * One schema change
+     */
+    @FunctionalInterface
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        add(1, "Create users and departments tables", conn -> execute(conn,
+            "CREATE TABLE IF NOT EXISTS users (uname TEXT, pwd TEXT)",
+            "CREATE TABLE IF NOT EXISTS departments ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, sch_id INTEGER, dept_code INTEGER, "
+                + "dept_name TEXT, dept_location TEXT, dept_email TEXT)"));
+        add(2, "Index users by name", CredentialStore::ensureSchema);
+        add(3, "Full-text index on department name, location and email", SchemaMigrator::createSearchIndex);
+        add(4, "Index departments by school and code", SchemaMigrator::createSchoolCodeIndex);
+        add(5, "Index departments by code", conn -> execute(conn,
+            "CREATE INDEX IF NOT EXISTS departments_dept_code ON departments(dept_code)"));
+        add(6, "Collect query planner statistics", conn -> execute(conn, "ANALYZE"));
+        add(7, "Add row versions to departments", SchemaMigrator::addDepartmentVersion);
+        add(8, "Track department changes", SchemaMigrator::createChangeLog);
+    }
+
+    private SchemaMigrator() {
+    }
+
+    private static void add(int version, String description, Step step) {
+        MIGRATIONS.add(new Migration(version, description, step));
+    }
+
+    /**
+     * Latest schema version known to this build
+     */
+    public static int getLatestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Apply all pending migrations, then let SQLite refresh stale planner statistics
+     * @param conn Open connection in auto-commit mode
+     * @return Number of migrations applied
+     * @throws SQLException if a migration fails; earlier migrations stay applied
+     */
+    public static int migrate(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS schema_version ("
+            + "version INTEGER PRIMARY KEY, description TEXT NOT NULL, "
+            + "applied_at TEXT NOT NULL DEFAULT (datetime('now')))");
+
+        int current = getCurrentVersion(conn);
+        if (current > getLatestVersion()) {
+            System.err.println("Database schema version " + current + " is newer than this application ("
+                + getLatestVersion() + ")");
+        }
+
+        int applied = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+            conn.setAutoCommit(false);
+            try {
+                migration.step.apply(conn);
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT OR IGNORE INTO schema_version (version, description) VALUES (?, ?)")) {
+                    pstmt.setInt(1, migration.version);
+                    pstmt.setString(2, migration.description);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw new SQLException("Schema migration " + migration.version + " (" + migration.description
+                    + ") failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+            applied++;
+        }
+
+        // Cheap when nothing changed; re-analyzes tables whose statistics have drifted
+        execute(conn, "PRAGMA optimize");
+        return applied;
+    }
+
+    /**
+     * Highest applied version, or 0 for a database that has never been migrated
+     */
+    private static int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Create the external-content FTS5 table over departments and the triggers that keep it in sync
+     */
+    private static void createSearchIndex(Connection conn) throws SQLException {
+        boolean exists;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                 "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'departments_fts'")) {
+            exists = rs.next();
+        }
+        if (exists) {
+            return;
+        }
+
+        execute(conn,
+            "CREATE VIRTUAL TABLE departments_fts USING fts5("
+                + "dept_name, dept_location, dept_email, "
+                + "content='departments', content_rowid='id', tokenize='unicode61')",
+            "CREATE TRIGGER IF NOT EXISTS departments_fts_insert AFTER INSERT ON departments BEGIN "
+                + "INSERT INTO departments_fts(rowid, dept_name, dept_location, dept_email) "
+                + "VALUES (new.id, new.dept_name, new.dept_location, new.dept_email); END",
+            "CREATE TRIGGER IF NOT EXISTS departments_fts_delete AFTER DELETE ON departments BEGIN "
+                + "INSERT INTO departments_fts(departments_fts, rowid, dept_name, dept_location, dept_email) "
+                + "VALUES ('delete', old.id, old.dept_name, old.dept_location, old.dept_email); END",
+            "CREATE TRIGGER IF NOT EXISTS departments_fts_update AFTER UPDATE ON departments BEGIN "
+                + "INSERT INTO departments_fts(departments_fts, rowid, dept_name, dept_location, dept_email) "
+                + "VALUES ('delete', old.id, old.dept_name, old.dept_location, old.dept_email); "
+                + "INSERT INTO departments_fts(rowid, dept_name, dept_location, dept_email) "
+                + "VALUES (new.id, new.dept_name, new.dept_location, new.dept_email); END",
+            // Index the rows that existed before the triggers
+            "INSERT INTO departments_fts(departments_fts) VALUES ('rebuild')");
+    }
+
+    /**
+     * Enforce one department per (school, code). If existing rows already break that rule,
+     * fall back to a plain index so lookups are still fast, and report the offending pairs.
+     */
+    private static void createSchoolCodeIndex(Connection conn) throws SQLException {
+        List<String> duplicates = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT sch_id, dept_code, COUNT(*) FROM departments "
+                 + "GROUP BY sch_id, dept_code HAVING COUNT(*) > 1 LIMIT 10")) {
+            while (rs.next()) {
+                duplicates.add("(" + rs.getString(1) + ", " + rs.getString(2) + ") x" + rs.getInt(3));
+            }
+        }
+        if (duplicates.isEmpty()) {
+            execute(conn, "CREATE UNIQUE INDEX IF NOT EXISTS departments_sch_code ON departments(sch_id, dept_code)");
+        } else {
+            System.err.println("Departments with duplicate (school ID, code) found, e.g. "
+                + String.join(", ", duplicates) + "; creating a non-unique index instead");
+            execute(conn, "CREATE INDEX IF NOT EXISTS departments_sch_code ON departments(sch_id, dept_code)");
+        }
+    }
+
+    /**
+     * Add the version column used for optimistic concurrency. Existing rows start at version 1.
+     * The trigger bumps the version when a writer outside this application changes a row
+     * without doing so itself, so such edits still make stale copies conflict.
+     */
+    private static void addDepartmentVersion(Connection conn) throws SQLException {
+        boolean exists = false;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA table_info(departments)")) {
+            while (rs.next()) {
+                exists |= "version".equalsIgnoreCase(rs.getString("name"));
+            }
+        }
+        if (!exists) {
+            execute(conn, "ALTER TABLE departments ADD COLUMN version INTEGER NOT NULL DEFAULT 1");
+        }
+        execute(conn,
+            "CREATE TRIGGER IF NOT EXISTS departments_version AFTER UPDATE ON departments "
+                + "WHEN new.version = old.version BEGIN "
+                + "UPDATE departments SET version = old.version + 1 WHERE id = new.id; END");
+    }
+
+    /**
+     * Record the latest change of every department with a sequence number that only grows,
+     * so readers can fetch just the rows changed since the sequence they last saw.
+     * Each ID keeps one row, which moves to the next sequence on every insert, update or delete,
+     * so the table never holds more rows than there have been department IDs.
+     */
+    private static void createChangeLog(Connection conn) throws SQLException {
+        String record = "INSERT INTO department_changes (dept_id, seq) "
+            + "VALUES (%s.id, (SELECT COALESCE(MAX(seq), 0) + 1 FROM department_changes)) "
+            + "ON CONFLICT(dept_id) DO UPDATE SET seq = excluded.seq; END";
+        execute(conn,
+            "CREATE TABLE IF NOT EXISTS department_changes (dept_id INTEGER PRIMARY KEY, seq INTEGER NOT NULL)",
+            "CREATE UNIQUE INDEX IF NOT EXISTS department_changes_seq ON department_changes(seq)",
+            "CREATE TRIGGER IF NOT EXISTS departments_change_insert AFTER INSERT ON departments BEGIN "
+                + String.format(record, "new"),
+            "CREATE TRIGGER IF NOT EXISTS departments_change_update AFTER UPDATE ON departments BEGIN "
+                + String.format(record, "new"),
+            "CREATE TRIGGER IF NOT EXISTS departments_change_delete AFTER DELETE ON departments BEGIN "
+                + String.format(record, "old"));
+    }
+
+    private static void execute(Connection conn, String... sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String s : sql) {
+                stmt.executeUpdate(s);
+            }
+        }
+    }
+}
@@ -0,0 +1,393 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.regex.Pattern;
+
+/**
+ * Logs prepared statements that take longer than a threshold to a rotating file.
+ * <p>
+ * The connection pool wraps every prepared statement it hands out. The wrapper records the
+ * bound parameters and times execution. Since SQLite does most of a query's work in next(), a
+ * query's time is its execution plus the time spent inside next() until it returns false or
+ * the result set is closed; what the caller does with each row between calls is not counted.
+ * The first next() (which does any sorting) is always timed, later ones only every
+ * {@value #NEXT_SAMPLE_INTERVAL}th call, and their total is estimated from that sample. The
+ * wrappers are plain delegating classes, so reading a row costs one extra call per method.
+ * <p>
+ * An entry has the SQL text, parameters, duration and row count. The first slow run of each
+ * distinct SQL text also logs its EXPLAIN QUERY PLAN, with full table scans marked.
+ * Parameters of statements on the users table are always redacted.
+ */
+class SlowQueryLog {
+    // Plans are captured once per SQL text; past this many texts, no more plans are logged
+    private static final int MAX_PLANNED_STATEMENTS = 1000;
+    private static final int MAX_PARAMETER_LENGTH = 100;
+    // Every this many next() calls one is timed; a power of two
+    private static final int NEXT_SAMPLE_INTERVAL = 16;
+    private static final Pattern CREDENTIAL_TABLE = Pattern.compile("\\busers\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN \\S+$");
+
+    private final long thresholdNanos;
+    private final boolean logParameters;
+    private final FileHandler file;
+    private final Set<String> planned = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param thresholdMillis Statements taking at least this long are logged
+     * @param logParameters false to redact every parameter
+     * @param filePattern Log file name; %g is replaced by the generation number
+     * @param fileBytes Size at which the log rotates to the next file
+     * @param fileCount Number of files kept
+     * @throws IOException if the log file cannot be opened
+     */
+    SlowQueryLog(long thresholdMillis, boolean logParameters, String filePattern, int fileBytes, int fileCount) throws IOException {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+        this.logParameters = logParameters;
+        this.file = new FileHandler(filePattern, fileBytes, fileCount, true);
+        file.setFormatter(new Formatter() {
+            @Override
+            public String format(LogRecord record) {
+                return String.format("%1$tF %1$tT.%1$tL %2$s%n", record.getMillis(), record.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Open the slow-query log described by the configuration
+     * @param cfg Configuration
+     * @return The log, or null if it is disabled or the file cannot be opened
+     */
+    static SlowQueryLog create(DatabaseConfig cfg) {
+        if (cfg.getSlowQueryThresholdMs() < 0) {
+            return null;
+        }
+        try {
+            return new SlowQueryLog(cfg.getSlowQueryThresholdMs(), cfg.isSlowQueryLogParameters(),
+                cfg.getSlowQueryFile(), cfg.getSlowQueryFileBytes(), cfg.getSlowQueryFileCount());
+        } catch (IOException e) {
+            // The application works without the log
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Wrap a statement so slow executions are logged
+     * @param statement Statement handed out by the pool
+     * @param connection Physical connection, used to read the query plan
+     * @param sql SQL text of the statement
+     * @return Statement to give to the caller
+     */
+    PreparedStatement wrap(PreparedStatement statement, Connection connection, String sql) {
+        return new LoggedStatement(statement, connection, sql);
+    }
+
+    /**
+     * Close the log file
+     */
+    void close() {
+        file.close();
+    }
+
+    private void log(LoggedStatement statement, long nanos, long rows, int batchSize, SQLException failure) {
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("%.3f ms", nanos / 1e6));
+        if (batchSize > 0) {
+            message.append(", batch of ").append(batchSize);
+        }
+        if (failure != null) {
+            message.append(", failed (").append(failure.getMessage()).append(')');
+        } else if (rows >= 0) {
+            message.append(", ").append(rows).append(rows == 1 ? " row" : " rows");
+        }
+        message.append(": ").append(statement.sql);
+        if (statement.parameterCount > 0) {
+            message.append(batchSize > 0 ? "\n  parameters (last row): " : "\n  parameters: ");
+            appendParameters(message, statement);
+        }
+        if (planned.size() < MAX_PLANNED_STATEMENTS && planned.add(statement.sql)) {
+            message.append("\n  query plan:");
+            appendQueryPlan(message, statement);
+        }
+        file.publish(new LogRecord(Level.WARNING, message.toString()));
+    }
+
+    private void appendParameters(StringBuilder message, LoggedStatement statement) {
+        boolean redact = !logParameters || CREDENTIAL_TABLE.matcher(statement.sql).find();
+        message.append('[');
+        for (int i = 0; i < statement.parameterCount; i++) {
+            if (i > 0) {
+                message.append(", ");
+            }
+            message.append(i + 1).append('=');
+            Object value = statement.parameters[i];
+            if (redact) {
+                message.append("<redacted>");
+            } else if (value instanceof String) {
+                String text = (String) value;
+                message.append('\'').append(text.length() > MAX_PARAMETER_LENGTH
+                    ? text.substring(0, MAX_PARAMETER_LENGTH) + "..." : text).append('\'');
+            } else if (value instanceof byte[]) {
+                message.append('<').append(((byte[]) value).length).append(" bytes>");
+            } else {
+                message.append(value);
+            }
+        }
+        message.append(']');
+    }
+
+    /**
+     * Run EXPLAIN QUERY PLAN with the same parameters and append it as an indented tree
+     */
+    private void appendQueryPlan(StringBuilder message, LoggedStatement statement) {
+        try (PreparedStatement explain = statement.connection.prepareStatement("EXPLAIN QUERY PLAN " + statement.sql)) {
+            for (int i = 0; i < statement.parameterCount; i++) {
+                explain.setObject(i + 1, statement.parameters[i]);
+            }
+            Map<Integer, Integer> depths = new HashMap<>();
+            int length = message.length();
+            try (ResultSet rs = explain.executeQuery()) {
+                while (rs.next()) {
+                    Integer parentDepth = depths.get(rs.getInt("parent"));
+                    int depth = parentDepth != null ? parentDepth + 1 : 0;
+                    depths.put(rs.getInt("id"), depth);
+                    String detail = rs.getString("detail");
+                    message.append("\n    ");
+                    for (int i = 0; i < depth; i++) {
+                        message.append("  ");
+                    }
+                    message.append(detail);
+                    if (FULL_SCAN.matcher(detail).matches()) {
+                        message.append("  <-- full table scan");
+                    }
+                }
+            }
+            if (message.length() == length) {
+                message.append(" none (no table is read)");
+            }
+        } catch (SQLException e) {
+            message.append(" unavailable (").append(e.getMessage()).append(')');
+        }
+    }
+
+    /**
+     * Records parameters and times executions of one statement
+     */
+    private class LoggedStatement extends DelegatingPreparedStatement {
+        private final Connection connection;
+        private final String sql;
+        private Object[] parameters = new Object[8];
+        private int parameterCount;
+        private int batchSize;
+        // Result set of the last query, until it is logged
+        private LoggedResultSet results;
+
+        LoggedStatement(PreparedStatement delegate, Connection connection, String sql) {
+            super(delegate);
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        protected void parameterSet(int parameterIndex, Object value) {
+            if (parameterIndex < 1) {
+                return;
+            }
+            if (parameterIndex > parameters.length) {
+                parameters = Arrays.copyOf(parameters, Math.max(parameterIndex, parameters.length * 2));
+            }
+            parameters[parameterIndex - 1] = value;
+            parameterCount = Math.max(parameterCount, parameterIndex);
+        }
+
+        @Override
+        public void clearParameters() throws SQLException {
+            Arrays.fill(parameters, 0, parameterCount, null);
+            parameterCount = 0;
+            delegate.clearParameters();
+        }
+
+        @Override
+        public void addBatch() throws SQLException {
+            batchSize++;
+            delegate.addBatch();
+        }
+
+        @Override
+        public void clearBatch() throws SQLException {
+            batchSize = 0;
+            delegate.clearBatch();
+        }
+
+        @Override
+        public ResultSet executeQuery() throws SQLException {
+            long start = begin();
+            ResultSet rs;
+            try {
+                rs = delegate.executeQuery();
+            } catch (SQLException e) {
+                executed(start, -1, 0, e);
+                throw e;
+            }
+            // Logged once the rows have been fetched, adding the time spent fetching them
+            results = new LoggedResultSet(this, rs, System.nanoTime() - start);
+            return results;
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+            long start = begin();
+            int count;
+            try {
+                count = delegate.executeUpdate();
+            } catch (SQLException e) {
+                executed(start, -1, 0, e);
+                throw e;
+            }
+            executed(start, count, 0, null);
+            return count;
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            long start = begin();
+            boolean hasResults;
+            try {
+                hasResults = delegate.execute();
+            } catch (SQLException e) {
+                executed(start, -1, 0, e);
+                throw e;
+            }
+            executed(start, -1, 0, null);
+            return hasResults;
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            int batch = batchSize;
+            long start = begin();
+            int[] counts;
+            try {
+                counts = delegate.executeBatch();
+            } catch (SQLException e) {
+                executed(start, -1, batch, e);
+                throw e;
+            }
+            long rows = 0;
+            for (int count : counts) {
+                rows += Math.max(0, count);
+            }
+            executed(start, rows, batch, null);
+            return counts;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            finishResults();
+            delegate.close();
+        }
+
+        /**
+         * Start timing an execution
+         * @return Start time
+         */
+        private long begin() {
+            // Running the statement again closes its previous result set
+            finishResults();
+            batchSize = 0;
+            return System.nanoTime();
+        }
+
+        private void executed(long start, long rows, int batch, SQLException failure) {
+            long nanos = System.nanoTime() - start;
+            if (nanos >= thresholdNanos) {
+                log(this, nanos, rows, batch, failure);
+            }
+        }
+
+        private void finishResults() {
+            if (results != null) {
+                results.finish();
+                results = null;
+            }
+        }
+    }
+
+    /**
+     * Counts the rows read, samples the time spent reading them and logs the query once they
+     * have all been read or the result set is closed
+     */
+    private class LoggedResultSet extends DelegatingResultSet {
+        private final LoggedStatement statement;
+        private final long executeNanos;
+        private long rows;
+        private long calls;
+        private long firstNextNanos;
+        private long sampledNanos;
+        private long sampledCalls;
+        private boolean finished;
+
+        LoggedResultSet(LoggedStatement statement, ResultSet delegate, long executeNanos) {
+            super(delegate);
+            this.statement = statement;
+            this.executeNanos = executeNanos;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            long call = calls++;
+            boolean timed = (call & (NEXT_SAMPLE_INTERVAL - 1)) == 0;
+            long start = timed ? System.nanoTime() : 0;
+            boolean hasRow = delegate.next();
+            if (timed) {
+                long nanos = System.nanoTime() - start;
+                if (call == 0) {
+                    firstNextNanos = nanos;
+                } else {
+                    sampledNanos += nanos;
+                    sampledCalls++;
+                }
+            }
+            if (hasRow) {
+                rows++;
+            } else {
+                finish();
+            }
+            return hasRow;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            finish();
+            delegate.close();
+        }
+
+        /**
+         * Log the query if it was slow; called when next() runs out of rows or the result set
+         * or its statement is closed
+         */
+        void finish() {
+            if (!finished) {
+                finished = true;
+                long nanos = executeNanos + firstNextNanos;
+                if (sampledCalls > 0) {
+                    nanos += sampledNanos * (calls - 1) / sampledCalls;
+                }
+                if (nanos >= thresholdNanos) {
+                    log(statement, nanos, rows, 0, null);
+                }
+            }
+        }
+    }
+}
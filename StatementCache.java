@@ -0,0 +1,224 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of prepared statements for one physical connection, keyed by SQL.
+ * <p>
+ * A cached statement is handed out wrapped in a handle whose close() resets the statement and
+ * returns it to the cache instead of finalizing it, so the next prepare of the same SQL skips
+ * parsing and planning. If the statement for a SQL string is already checked out, a plain
+ * uncached statement is returned instead. Evicted statements are closed.
+ */
+class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    // Access order, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param connection Physical connection the statements belong to
+     * @param capacity Maximum number of cached statements (0 disables caching)
+     * @param hits Counter incremented when a cached statement is reused
+     * @param misses Counter incremented when a statement has to be compiled
+     * @param evictions Counter incremented when a statement is closed to make room
+     */
+    StatementCache(Connection connection, int capacity, AtomicLong hits, AtomicLong misses, AtomicLong evictions) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * Get a prepared statement for the SQL, reusing a cached one when possible
+     * @param owner Connection handle that getConnection() on the statement should return
+     * @param sql SQL text
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+     * @return Statement whose close() returns it to the cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    synchronized PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        if (capacity <= 0) {
+            misses.incrementAndGet();
+            return connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : "N:" + sql;
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.inUse) {
+            hits.incrementAndGet();
+            return entry.checkOut(owner);
+        }
+
+        misses.incrementAndGet();
+        PreparedStatement statement = connection.prepareStatement(sql, autoGeneratedKeys);
+        if (entry != null) {
+            // The cached statement is busy (e.g. nested use of the same SQL); hand out a private one
+            return statement;
+        }
+        entry = new Entry(key, statement);
+        entries.put(key, entry);
+        evictIfNeeded();
+        return entry.checkOut(owner);
+    }
+
+    /**
+     * Close statements that were never returned by the previous user of the connection.
+     * Called when the connection goes back to the pool.
+     */
+    synchronized void reclaim() {
+        List<Entry> leaked = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.inUse) {
+                leaked.add(entry);
+            }
+        }
+        for (Entry entry : leaked) {
+            entries.remove(entry.key);
+            entry.closePhysical();
+        }
+    }
+
+    /**
+     * Close every cached statement; called before the physical connection is closed
+     */
+    synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            entry.closePhysical();
+        }
+        entries.clear();
+    }
+
+    /**
+     * Number of statements currently cached
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            if (!eldest.inUse) {
+                it.remove();
+                eldest.closePhysical();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private synchronized void checkIn(Entry entry) {
+        try {
+            ResultSet rs = entry.statement.getResultSet();
+            if (rs != null) {
+                rs.close();
+            }
+            entry.statement.clearParameters();
+            entry.statement.clearBatch();
+            entry.inUse = false;
+        } catch (SQLException e) {
+            // A statement that cannot be reset is not worth keeping
+            entries.remove(entry.key);
+            entry.closePhysical();
+        }
+    }
+
+    /**
+     * A cached physical statement
+     */
+    private class Entry {
+        final String key;
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean closed;
+
+        Entry(String key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        PreparedStatement checkOut(Connection owner) {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new CheckoutHandler(this, owner));
+        }
+
+        void closePhysical() {
+            closed = true;
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Routes calls to the cached statement and turns close() into a return to the cache
+     */
+    private class CheckoutHandler implements InvocationHandler {
+        private final Entry entry;
+        private final Connection owner;
+        private boolean returned;
+
+        CheckoutHandler(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        if (!entry.closed) {
+                            checkIn(entry);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.statement + (returned ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+            if (returned || entry.closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
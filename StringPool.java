@@ -0,0 +1,54 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded pool of canonical string instances.
+ * Equal values read from different rows share one String object, so repeated
+ * locations, e-mail domains and names do not each cost a separate copy on the heap.
+ */
+public class StringPool {
+    private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    /**
+     * Create a pool
+     * @param maxSize Maximum number of distinct strings kept; once full, new values are not pooled
+     */
+    public StringPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get the canonical instance of a string
+     * @param value String to pool (may be null)
+     * @return The pooled instance equal to value, or value itself if the pool is full
+     */
+    public String pool(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = strings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (strings.size() >= maxSize) {
+            return value;
+        }
+        pooled = strings.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    /**
+     * Number of distinct strings in the pool
+     * @return Pool size
+     */
+    public int size() {
+        return strings.size();
+    }
+
+    /**
+     * Drop all pooled strings
+     */
+    public void clear() {
+        strings.clear();
+    }
+}
@@ -0,0 +1,148 @@
+package dms.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Seeded SQLite databases for the benchmarks.
+ * <p>
+ * Row contents are a pure function of the row ID, so every run benchmarks the same data.
+ * A template per row count is built once in the temp directory (named after the row count and
+ * schema version, so schema changes rebuild it) and copied for each trial, because benchmarks
+ * that write change the file.
+ */
+final class BenchmarkDatabase {
+    static final String USER = "bench";
+    static final String PASSWORD = "bench-password";
+    static final int SCHOOLS = 500;
+    static final int LOCATIONS = 50;
+
+    private static final String[] NAMES = {
+        "Mathematics", "Physics", "Chemistry", "Biology", "History", "Geography", "Literature",
+        "Music", "Art", "Economics", "Philosophy", "Computer Science", "Engineering", "Medicine"
+    };
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Point the application at a fresh copy of the template for this row count and initialize it.
+     * Call from a Level.Trial setup; JMH forks a new JVM per trial, so the application's static
+     * state starts out empty.
+     * @param rows Number of departments
+     * @return Directory holding the copy, for {@link #close(Path)}
+     */
+    static Path open(int rows) throws IOException, SQLException {
+        Path template = template(rows);
+        Path dir = Files.createTempDirectory("dms-bench-");
+        Path db = dir.resolve("javaapp.db");
+        Files.copy(template, db);
+        System.setProperty("dms.db.path", db.toString());
+        Dms.initializeDatabase();
+        return dir;
+    }
+
+    /**
+     * Shut the application's database layer down and delete the trial's copy
+     * @param dir Directory returned by {@link #open(int)}
+     */
+    static void close(Path dir) throws IOException {
+        Dms.shutdown();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    static int schoolOf(int id) {
+        return 1 + Math.floorMod(mix(id), SCHOOLS);
+    }
+
+    static String nameOf(int id) {
+        return NAMES[Math.floorMod(mix(id) >>> 9, NAMES.length)] + " " + id;
+    }
+
+    static String locationOf(int id) {
+        return "Building " + (1 + Math.floorMod(mix(id) >>> 13, LOCATIONS));
+    }
+
+    static String emailOf(int id) {
+        return "dept" + id + "@school" + schoolOf(id) + ".edu";
+    }
+
+    /**
+     * Build the template for a row count unless it already exists
+     */
+    private static synchronized Path template(int rows) throws IOException, SQLException {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"));
+        Path template = dir.resolve("dms-bench-" + rows + "-" + Dms.getLatestSchemaVersion() + ".db");
+        if (Files.exists(template)) {
+            return template;
+        }
+        Path partial = Files.createTempFile(dir, "dms-bench-seed-", ".db");
+        Files.delete(partial);
+        System.out.println("Seeding " + rows + " departments into " + template + "...");
+        long start = System.nanoTime();
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + partial)) {
+            try (Statement stmt = conn.createStatement()) {
+                // Only the finished file matters; a crash just leaves a partial file to be replaced
+                stmt.execute("PRAGMA journal_mode = OFF");
+                stmt.execute("PRAGMA synchronous = OFF");
+            }
+            Dms.migrate(conn);
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO departments (id, sch_id, dept_code, dept_name, dept_location, dept_email) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (int id = 1; id <= rows; id++) {
+                    pstmt.setInt(1, id);
+                    pstmt.setInt(2, schoolOf(id));
+                    pstmt.setInt(3, id);
+                    pstmt.setString(4, nameOf(id));
+                    pstmt.setString(5, locationOf(id));
+                    pstmt.setString(6, emailOf(id));
+                    pstmt.addBatch();
+                    if (id % 10000 == 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO users (uname, pwd) VALUES (?, ?)")) {
+                // Stored as plaintext; the first login of a trial replaces it with a hash
+                pstmt.setString(1, USER);
+                pstmt.setString(2, PASSWORD);
+                pstmt.executeUpdate();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ANALYZE");
+                stmt.execute("PRAGMA journal_mode = DELETE");
+            }
+        }
+        Files.move(partial, template, StandardCopyOption.ATOMIC_MOVE);
+        System.out.printf("Seeded in %.1f s%n", (System.nanoTime() - start) / 1e9);
+        return template;
+    }
+
+    /**
+     * Cheap integer hash so the generated columns look random but depend only on the ID
+     */
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        return h ^ (h >>> 13);
+    }
+}
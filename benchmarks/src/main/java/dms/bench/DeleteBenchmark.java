@@ -0,0 +1,88 @@
+package dms.bench;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * Deletes through DatabaseConnector, one row per call and in batches.
+ * <p>
+ * Every delete must hit a row, so the benchmarks run a fixed number of calls per iteration
+ * (single-shot mode with a batch size) and each iteration first inserts exactly the rows its
+ * calls will delete, above the seeded IDs so the table size stays at the parameter.
+ * Both scores are the time to delete CALLS rows, so they compare directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+@Warmup(iterations = 3, batchSize = DeleteBenchmark.CALLS)
+@Measurement(iterations = 10, batchSize = DeleteBenchmark.CALLS)
+public class DeleteBenchmark {
+    static final int CALLS = 200;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path dir;
+    private int nextId;
+    private int deleteFrom;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkDatabase.open(rows);
+        nextId = rows + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkDatabase.close(dir);
+    }
+
+    /**
+     * Insert the rows this iteration will delete: one per call, or a batch per call for deleteDepartments
+     */
+    @Setup(Level.Iteration)
+    public void insertRowsToDelete(BenchmarkParams params) {
+        deleteFrom = nextId;
+        int count = params.getBenchmark().endsWith(".deleteDepartments") ? CALLS * WriteBenchmark.BATCH : CALLS;
+        List<Object> departments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = nextId++;
+            departments.add(Dms.newDepartment(id, BenchmarkDatabase.schoolOf(id), id, BenchmarkDatabase.nameOf(id),
+                BenchmarkDatabase.locationOf(id), BenchmarkDatabase.emailOf(id)));
+        }
+        Dms.insertDepartments(departments);
+    }
+
+    @Benchmark
+    public int deleteDepartment() {
+        return Dms.deleteDepartment(deleteFrom++);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WriteBenchmark.BATCH)
+    public Object deleteDepartments() {
+        List<Integer> ids = new ArrayList<>(WriteBenchmark.BATCH);
+        for (int i = 0; i < WriteBenchmark.BATCH; i++) {
+            ids.add(deleteFrom++);
+        }
+        return Dms.deleteDepartments(ids);
+    }
+}
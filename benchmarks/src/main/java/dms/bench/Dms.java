@@ -0,0 +1,249 @@
+package dms.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.Connection;
+import java.util.Collection;
+import java.util.List;
+import javax.swing.SwingWorker;
+
+/**
+ * Calls into the application classes.
+ * <p>
+ * The application lives in the default package, which code in a named package (as JMH requires)
+ * cannot import, so its methods are bound once as method handles. Handles held in static final
+ * fields are constants to the JIT, so a call costs the same as a direct one.
+ */
+final class Dms {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    static final Class<?> DEPARTMENT = load("Department");
+    private static final Class<?> CONNECTOR = load("DatabaseConnector");
+    private static final Class<?> TABLE_MODEL = load("DepartmentTableModel");
+
+    private static final MethodHandle INITIALIZE = findStatic(CONNECTOR, "initializeDatabase", void.class);
+    private static final MethodHandle SHUTDOWN = findStatic(CONNECTOR, "shutdown", void.class);
+    private static final MethodHandle MIGRATE = findStatic(load("SchemaMigrator"), "migrate", int.class, Connection.class);
+    private static final MethodHandle SCHEMA_VERSION = findStatic(load("SchemaMigrator"), "getLatestVersion", int.class);
+    private static final MethodHandle VALIDATE_LOGIN = findStatic(CONNECTOR, "validateLogin", boolean.class,
+        String.class, String.class);
+    private static final MethodHandle GET_BY_ID = findStatic(CONNECTOR, "getDepartmentById", DEPARTMENT, int.class);
+    private static final MethodHandle GET_ALL = findStatic(CONNECTOR, "getAllDepartments", List.class);
+    private static final MethodHandle INSERT = findStatic(CONNECTOR, "insertDepartmentReturningId", int.class,
+        int.class, int.class, String.class, String.class, String.class);
+    private static final MethodHandle UPDATE = findStatic(CONNECTOR, "updateDepartment", int.class,
+        int.class, int.class, int.class, String.class, String.class, String.class);
+    private static final MethodHandle DELETE = findStatic(CONNECTOR, "deleteDepartment", int.class, int.class);
+    private static final MethodHandle INSERT_BATCH = findStatic(CONNECTOR, "insertDepartments", load("BatchResult"),
+        Collection.class);
+    private static final MethodHandle UPDATE_BATCH = findStatic(CONNECTOR, "updateDepartments", load("BatchResult"),
+        Collection.class);
+    private static final MethodHandle DELETE_BATCH = findStatic(CONNECTOR, "deleteDepartments", load("BatchResult"),
+        Collection.class);
+    private static final MethodHandle NEW_DEPARTMENT = findConstructor(DEPARTMENT,
+        int.class, int.class, int.class, String.class, String.class, String.class);
+    private static final MethodHandle NEW_TABLE_MODEL = findConstructor(TABLE_MODEL);
+    private static final MethodHandle RELOAD = findVirtual(TABLE_MODEL, "reload", SwingWorker.class);
+    private static final MethodHandle FIND_ROW = findVirtual(TABLE_MODEL, "findRow", int.class, int.class);
+    private static final MethodHandle ROW_COUNT = findVirtual(TABLE_MODEL, "getRowCount", int.class);
+
+    private Dms() {
+    }
+
+    static void initializeDatabase() {
+        try {
+            INITIALIZE.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void shutdown() {
+        try {
+            SHUTDOWN.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static void migrate(Connection conn) {
+        try {
+            MIGRATE.invoke(conn);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getLatestSchemaVersion() {
+        try {
+            return (int) SCHEMA_VERSION.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean validateLogin(String username, String password) {
+        try {
+            return (boolean) VALIDATE_LOGIN.invokeExact(username, password);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object getDepartmentById(int id) {
+        try {
+            return GET_BY_ID.invoke(id);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> getAllDepartments() {
+        try {
+            return (List<?>) GET_ALL.invokeExact();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int insertDepartment(int schId, int deptCode, String name, String location, String email) {
+        try {
+            return (int) INSERT.invokeExact(schId, deptCode, name, location, email);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int updateDepartment(int id, int schId, int deptCode, String name, String location, String email) {
+        try {
+            return (int) UPDATE.invokeExact(id, schId, deptCode, name, location, email);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int deleteDepartment(int id) {
+        try {
+            return (int) DELETE.invokeExact(id);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * @return The BatchResult
+     */
+    static Object insertDepartments(Collection<?> departments) {
+        try {
+            return INSERT_BATCH.invoke(departments);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object updateDepartments(Collection<?> departments) {
+        try {
+            return UPDATE_BATCH.invoke(departments);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object deleteDepartments(Collection<Integer> ids) {
+        try {
+            return DELETE_BATCH.invoke(ids);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newDepartment(int id, int schId, int deptCode, String name, String location, String email) {
+        try {
+            return NEW_DEPARTMENT.invoke(id, schId, deptCode, name, location, email);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static Object newTableModel() {
+        try {
+            return NEW_TABLE_MODEL.invoke();
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Start a reload of the model; call on the event dispatch thread
+     */
+    static SwingWorker<?, ?> reload(Object model) {
+        try {
+            return (SwingWorker<?, ?>) RELOAD.invoke(model);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int findRow(Object model, int id) {
+        try {
+            return (int) FIND_ROW.invoke(model, id);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static int getRowCount(Object model) {
+        try {
+            return (int) ROW_COUNT.invoke(model);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static Class<?> load(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Application class not on the classpath: " + name, e);
+        }
+    }
+
+    private static MethodHandle findStatic(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findStatic(owner, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing method " + owner.getName() + "." + name, e);
+        }
+    }
+
+    private static MethodHandle findVirtual(Class<?> owner, String name, Class<?> returnType, Class<?>... parameters) {
+        try {
+            return LOOKUP.findVirtual(owner, name, MethodType.methodType(returnType, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing method " + owner.getName() + "." + name, e);
+        }
+    }
+
+    private static MethodHandle findConstructor(Class<?> owner, Class<?>... parameters) {
+        try {
+            return LOOKUP.findConstructor(owner, MethodType.methodType(void.class, parameters));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Missing constructor of " + owner.getName(), e);
+        }
+    }
+
+    /**
+     * Unchecked exceptions pass through; checked ones (SQLException) are wrapped so a failing
+     * call fails the benchmark instead of being measured
+     */
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw new IllegalStateException(t);
+    }
+}
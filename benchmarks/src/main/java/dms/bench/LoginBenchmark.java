@@ -0,0 +1,54 @@
+package dms.bench;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Login checks, with the session cache off (every login hashes the password) and on
+ * (repeated logins of the same user skip the hash).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoginBenchmark {
+    @Param({"0", "300000"})
+    public long sessionTtlMs;
+
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty("dms.auth.sessionTtlMs", String.valueOf(sessionTtlMs));
+        dir = BenchmarkDatabase.open(1000);
+        // Upgrade the seeded plaintext password to a hash before measuring
+        if (!Dms.validateLogin(BenchmarkDatabase.USER, BenchmarkDatabase.PASSWORD)) {
+            throw new IllegalStateException("Seeded user cannot log in");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkDatabase.close(dir);
+    }
+
+    @Benchmark
+    public boolean validateLogin() {
+        return Dms.validateLogin(BenchmarkDatabase.USER, BenchmarkDatabase.PASSWORD);
+    }
+}
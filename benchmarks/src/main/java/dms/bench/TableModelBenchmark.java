@@ -0,0 +1,73 @@
+package dms.bench;
+
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The department list's table model: populating it with every row ID (what the list window
+ * does on open and refresh, up to the moment the last row is in the table) and finding the
+ * row of an ID (the list window's search by ID).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TableModelBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path dir;
+    private Object model;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkDatabase.open(rows);
+        SwingUtilities.invokeAndWait(() -> model = Dms.newTableModel());
+        populate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkDatabase.close(dir);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int populate() throws Exception {
+        SwingWorker<?, ?>[] load = new SwingWorker<?, ?>[1];
+        SwingUtilities.invokeAndWait(() -> load[0] = Dms.reload(model));
+        load[0].get();
+        // Published chunks reach the model on the event dispatch thread shortly after the scan ends
+        int[] count = new int[1];
+        do {
+            SwingUtilities.invokeAndWait(() -> count[0] = Dms.getRowCount(model));
+        } while (count[0] < rows && !Thread.currentThread().isInterrupted());
+        return count[0];
+    }
+
+    /**
+     * Reads the model off the event dispatch thread; safe here because nothing changes it after setup
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int findRow() {
+        return Dms.findRow(model, ThreadLocalRandom.current().nextInt(1, rows + 1));
+    }
+}
@@ -0,0 +1,94 @@
+package dms.bench;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inserts and updates through DatabaseConnector, one row per call and in batches.
+ * Batched benchmarks report per-row figures ({@link OperationsPerInvocation}), so they
+ * compare directly with the single-row ones. Deletes are in {@link DeleteBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WriteBenchmark {
+    static final int BATCH = 500;
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private Path dir;
+    // New rows get IDs and codes above the seeded ones, so they never collide
+    private int nextId;
+    private int nextVersion;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = BenchmarkDatabase.open(rows);
+        nextId = rows + 1;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkDatabase.close(dir);
+    }
+
+    @Benchmark
+    public int insertDepartment() {
+        int code = nextId++;
+        return Dms.insertDepartment(BenchmarkDatabase.schoolOf(code), code, BenchmarkDatabase.nameOf(code),
+            BenchmarkDatabase.locationOf(code), BenchmarkDatabase.emailOf(code));
+    }
+
+    @Benchmark
+    public int updateDepartment() {
+        int id = ThreadLocalRandom.current().nextInt(1, rows + 1);
+        return Dms.updateDepartment(id, BenchmarkDatabase.schoolOf(id), id, "Updated " + nextVersion++,
+            BenchmarkDatabase.locationOf(id), BenchmarkDatabase.emailOf(id));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object insertDepartments() {
+        List<Object> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            int id = nextId++;
+            batch.add(Dms.newDepartment(id, BenchmarkDatabase.schoolOf(id), id, BenchmarkDatabase.nameOf(id),
+                BenchmarkDatabase.locationOf(id), BenchmarkDatabase.emailOf(id)));
+        }
+        return Dms.insertDepartments(batch);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Object updateDepartments() {
+        List<Object> batch = new ArrayList<>(BATCH);
+        String name = "Updated " + nextVersion++;
+        for (int i = 0; i < BATCH; i++) {
+            int id = ThreadLocalRandom.current().nextInt(1, rows + 1);
+            batch.add(Dms.newDepartment(id, BenchmarkDatabase.schoolOf(id), id, name,
+                BenchmarkDatabase.locationOf(id), BenchmarkDatabase.emailOf(id)));
+        }
+        return Dms.updateDepartments(batch);
+    }
+}